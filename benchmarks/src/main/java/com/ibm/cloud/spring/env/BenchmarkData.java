@@ -0,0 +1,87 @@
+package com.ibm.cloud.spring.env;
+
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test data shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    static final String ENV_CONFIG = "{\"cloudant_username\":\"env-json-username\"}";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Create a config map for the given mappings file, as the post processor would.
+     *
+     * @param mappings The classpath location of the mappings file
+     * @return The config map
+     */
+    static CloudServicesConfigMap configMap(String mappings) {
+        return configMap(mappings, false);
+    }
+
+    /**
+     * Create a config map for the given mappings file, as the post processor would.
+     *
+     * @param mappings The classpath location of the mappings file
+     * @param cacheEnabled true to cache resolved values
+     * @return The config map
+     */
+    static CloudServicesConfigMap configMap(String mappings, boolean cacheEnabled) {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(CloudServicesSettings.MAPPINGS, mappings);
+        settings.put(CloudServicesSettings.CACHE_ENABLED, String.valueOf(cacheEnabled));
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("benchmark", settings));
+        return new CloudServicesConfigMap(new CloudServicesSettings(environment), new DefaultResourceLoader());
+    }
+
+    /**
+     * Build a VCAP_SERVICES value with the given number of bound services. Half of the
+     * services are user-provided, and the services referenced by the benchmark mappings
+     * are the last of each kind.
+     *
+     * @param services The number of bound services, at least 1
+     * @return The VCAP_SERVICES JSON
+     */
+    static String vcapServices(int services) {
+        int userProvided = services / 2;
+        int managed = services - userProvided;
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 1; i < managed; i++) {
+            json.append("\"service-").append(i).append("\":[").append(service("service-" + i, "managed-" + i)).append("],");
+        }
+        json.append("\"cloudantNoSQLDB\":[").append(service("cloudantNoSQLDB", "cloudant-1234567890")).append("]");
+        if (userProvided > 0) {
+            json.append(",\"user-provided\":[");
+            for (int i = 1; i < userProvided; i++) {
+                json.append(service("user-provided", "user-provided-" + i)).append(",");
+            }
+            json.append(service("user-provided", "bench-instance-id")).append("]");
+        }
+        return json.append("}").toString();
+    }
+
+    private static String service(String label, String name) {
+        return "{\"credentials\":{\"username\":\"" + name + "-username\",\"password\":\"" + name + "-password\","
+                + "\"host\":\"" + name + ".example.com\",\"port\":443,\"url\":\"https://" + name + ".example.com\","
+                + "\"certificate\":\"" + certificate() + "\"},"
+                + "\"syslog_drain_url\":null,\"volume_mounts\":[],\"label\":\"" + label + "\",\"provider\":null,"
+                + "\"plan\":\"Lite\",\"name\":\"" + name + "\",\"tags\":[\"data_management\",\"ibm_created\"]}";
+    }
+
+    private static String certificate() {
+        StringBuilder certificate = new StringBuilder("-----BEGIN CERTIFICATE-----\\n");
+        for (int i = 0; i < 20; i++) {
+            certificate.append("MIIDDzCCAfegAwIBAgIJAKN4ZbLlvjvaMA0GCSqGSIb3DQEBCwUAMB4xHDAaBgNV\\n");
+        }
+        return certificate.append("-----END CERTIFICATE-----").toString();
+    }
+}
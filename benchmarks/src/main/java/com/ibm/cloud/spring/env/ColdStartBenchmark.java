@@ -0,0 +1,125 @@
+package com.ibm.cloud.spring.env;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to the first property of a starting application, with the mappings
+ * read from mappings.startup.json or compiled into StartupCompiledMappings at build time.
+ * Every invocation runs StartupProbe in a new class loader, so the classes it uses are
+ * loaded and initialized again as they would be in a new JVM. The number of classes
+ * loaded, and how many of them are Jackson or JsonPath classes, are reported as the
+ * "classesLoaded" and "jsonClassesLoaded" counters. These are totals over the measured
+ * iterations, so divide them by the count to get the classes loaded by each start.
+ *
+ * The startup mappings only use plain env: and file: patterns, so with compiled mappings
+ * no Jackson or JsonPath classes should be loaded at all.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(3)
+@State(Scope.Benchmark)
+public class ColdStartBenchmark {
+
+    @Param({"json", "compiled"})
+    public String mappings;
+
+    private URL[] classpath;
+
+    /**
+     * The classes loaded by each invocation.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class ClassLoading {
+        public long classesLoaded;
+        public long jsonClassesLoaded;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            classesLoaded = 0;
+            jsonClassesLoaded = 0;
+        }
+    }
+
+    /**
+     * Loads classes from the benchmark's class path itself rather than its parent, counting them.
+     */
+    static final class IsolatedClassLoader extends URLClassLoader {
+        private int classesLoaded;
+        private int jsonClassesLoaded;
+
+        IsolatedClassLoader(URL[] classpath) {
+            super(classpath, ClassLoader.getSystemClassLoader().getParent());
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            Class<?> loaded = super.findClass(name);
+            classesLoaded++;
+            if (name.startsWith("com.fasterxml.jackson.") || name.startsWith("com.jayway.jsonpath.")) {
+                jsonClassesLoaded++;
+            }
+            return loaded;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setProperty("startup_url", "https://env.example.com");
+        List<URL> urls = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            urls.add(new File(entry).toURI().toURL());
+        }
+        classpath = urls.toArray(new URL[urls.size()]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("startup_url");
+    }
+
+    @Benchmark
+    public Object firstProperty(ClassLoading classLoading) throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (IsolatedClassLoader loader = new IsolatedClassLoader(classpath)) {
+            thread.setContextClassLoader(loader);       //used by Spring to find the compiled mappings
+            Method probe = loader.loadClass(StartupProbe.class.getName())
+                    .getMethod("firstProperty", String.class, String.class, String.class);
+            Object value = probe.invoke(null, "/mappings.startup.json",
+                    mappings.equals("compiled") ? StartupCompiledMappings.class.getName() : null, "startup.url");
+            if (value == null) {
+                throw new IllegalStateException("Startup mappings do not resolve startup.url");
+            }
+            classLoading.classesLoaded += loader.classesLoaded;
+            classLoading.jsonClassesLoaded += loader.jsonClassesLoaded;
+            return value;
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+}
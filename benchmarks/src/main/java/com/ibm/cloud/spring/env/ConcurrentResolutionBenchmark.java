@@ -0,0 +1,113 @@
+package com.ibm.cloud.spring.env;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how resolution through CloudServicesPropertySource scales with the number
+ * of threads looking up values at once, cycling through every mapped name. Throughput
+ * at 4, 16 and 64 threads should grow with the available processors rather than stay
+ * at the single threaded rate. The "reload" group looks up values while another thread
+ * repeatedly discards the caches, so lookups keep resolving from cold caches.
+ *
+ * CloudServicesConcurrencyTest checks the values returned under the same contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentResolutionBenchmark {
+
+    @Param({"1", "2"})
+    public int version;
+
+    @Param({"false", "true"})
+    public boolean cacheEnabled;
+
+    private CloudServicesPropertySource propertySource;
+    private String[] names;
+
+    /**
+     * The position of each thread in the mapped names.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String next(String[] names) {
+            String name = names[next];
+            next = next + 1 == names.length ? 0 : next + 1;
+            return name;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        System.setProperty("VCAP_SERVICES", BenchmarkData.vcapServices(20));
+        System.setProperty("bench_config", BenchmarkData.ENV_CONFIG);
+        CloudServicesConfigMap configMap = BenchmarkData.configMap("/mappings.bench.v" + version + ".json", cacheEnabled);
+        propertySource = new CloudServicesPropertySource(CloudServicesEnvironmentPostProcessor.PROPERTY_SOURCE_NAME, configMap);
+        names = configMap.getNames();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("VCAP_SERVICES");
+        System.clearProperty("bench_config");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object threads1(Cursor cursor) {
+        return propertySource.getProperty(cursor.next(names));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object threads4(Cursor cursor) {
+        return propertySource.getProperty(cursor.next(names));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object threads16(Cursor cursor) {
+        return propertySource.getProperty(cursor.next(names));
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object threads64(Cursor cursor) {
+        return propertySource.getProperty(cursor.next(names));
+    }
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(15)
+    public Object reloadLookup(Cursor cursor) {
+        return propertySource.getProperty(cursor.next(names));
+    }
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(1)
+    public void reloadRefresh() {
+        propertySource.getSource().refresh();
+    }
+}
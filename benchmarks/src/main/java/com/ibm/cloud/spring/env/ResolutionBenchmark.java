@@ -0,0 +1,76 @@
+package com.ibm.cloud.spring.env;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving a single mapped name through CloudServicesPropertySource, for
+ * a hit and a miss on each search pattern protocol, and for an unmapped name.
+ *
+ * Run with "-prof gc" to report the allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResolutionBenchmark {
+
+    @Param({"1", "2"})
+    public int version;
+
+    @Param({"user-provided", "cloudfoundry", "env", "file"})
+    public String protocol;
+
+    private CloudServicesPropertySource propertySource;
+    private String hit;
+    private String miss;
+
+    @Setup
+    public void setUp() {
+        System.setProperty("VCAP_SERVICES", BenchmarkData.vcapServices(20));
+        System.setProperty("bench_config", BenchmarkData.ENV_CONFIG);
+        propertySource = new CloudServicesPropertySource(CloudServicesEnvironmentPostProcessor.PROPERTY_SOURCE_NAME,
+                BenchmarkData.configMap("/mappings.bench.v" + version + ".json"));
+        String service = protocol.replace("-", "");
+        hit = version > 1 ? service + ".hit" : service + "_hit";
+        miss = version > 1 ? service + ".miss" : service + "_miss";
+        if (propertySource.getProperty(hit) == null) {
+            throw new IllegalStateException("Benchmark mappings do not resolve " + hit);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("VCAP_SERVICES");
+        System.clearProperty("bench_config");
+    }
+
+    @Benchmark
+    public Object hit() {
+        return propertySource.getProperty(hit);
+    }
+
+    @Benchmark
+    public Object miss() {
+        return propertySource.getProperty(miss);
+    }
+
+    @Benchmark
+    public Object unmapped() {
+        return propertySource.getProperty("server.port");
+    }
+}
@@ -0,0 +1,82 @@
+package com.ibm.cloud.spring.env;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures post processing an environment which resolves every mapped value at startup,
+ * either from the sources ("eager") or restored from an unchanged snapshot file ("snapshot").
+ * The snapshot is written once in the setup, so every measured start restores it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    @Param({"eager", "snapshot"})
+    public String start;
+
+    private final CloudServicesEnvironmentPostProcessor postProcessor = new CloudServicesEnvironmentPostProcessor();
+    private Path directory;
+    private Map<String, Object> settings;
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setProperty("VCAP_SERVICES", BenchmarkData.vcapServices(20));
+        System.setProperty("bench_config", BenchmarkData.ENV_CONFIG);
+        directory = Files.createTempDirectory("cloud-services-snapshot");
+        byte[] key = new byte[CloudServicesSettings.SNAPSHOT_KEY_LENGTH];
+        new SecureRandom().nextBytes(key);
+        settings = new HashMap<>();
+        settings.put(CloudServicesSettings.MAPPINGS, "/mappings.bench.v2.json");
+        if (start.equals("snapshot")) {
+            settings.put(CloudServicesSettings.SNAPSHOT_FILE, directory.resolve("snapshot.bin").toString());
+            settings.put(CloudServicesSettings.SNAPSHOT_KEY, Base64.getEncoder().encodeToString(key));
+        } else {
+            settings.put(CloudServicesSettings.EAGER_ENABLED, "true");
+        }
+        if (postProcess() == null) {     //writes the snapshot
+            throw new IllegalStateException("Benchmark mappings do not resolve env.hit");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.clearProperty("VCAP_SERVICES");
+        System.clearProperty("bench_config");
+        Files.deleteIfExists(directory.resolve("snapshot.bin"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Object postProcess() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new MapPropertySource("benchmark", settings));
+        postProcessor.postProcessEnvironment(environment, null);
+        return environment.getProperty("env.hit");
+    }
+}
@@ -0,0 +1,84 @@
+package com.ibm.cloud.spring.env;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures starting a Spring context with the cloud services property source, then
+ * resolving the mapped names and thousands of unmapped names, as property binding
+ * does at application startup.
+ *
+ * Run with "-prof gc" to report the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"5000"})
+    public int unmappedLookups;
+
+    private final CloudServicesEnvironmentPostProcessor postProcessor = new CloudServicesEnvironmentPostProcessor();
+    private String[] unmappedNames;
+
+    @Setup
+    public void setUp() {
+        System.setProperty("VCAP_SERVICES", BenchmarkData.vcapServices(20));
+        System.setProperty("bench_config", BenchmarkData.ENV_CONFIG);
+        unmappedNames = new String[unmappedLookups];
+        for (int i = 0; i < unmappedLookups; i++) {
+            unmappedNames[i] = "app.component-" + (i / 10) + ".property-" + (i % 10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("VCAP_SERVICES");
+        System.clearProperty("bench_config");
+    }
+
+    @Benchmark
+    public int contextStartup() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        try {
+            ConfigurableEnvironment environment = context.getEnvironment();
+            environment.getPropertySources().addLast(new MapPropertySource("benchmark",
+                    Collections.<String, Object>singletonMap(CloudServicesSettings.MAPPINGS, "/mappings.bench.v2.json")));
+            postProcessor.postProcessEnvironment(environment, null);
+            context.refresh();
+            int found = 0;
+            for (String name : new String[] {"userprovided.hit", "cloudfoundry.hit", "env.hit", "file.hit"}) {
+                if (environment.getProperty(name) != null) {
+                    found++;
+                }
+            }
+            for (String name : unmappedNames) {
+                if (environment.getProperty(name) != null) {
+                    found++;
+                }
+            }
+            return found;
+        } finally {
+            context.close();
+        }
+    }
+}
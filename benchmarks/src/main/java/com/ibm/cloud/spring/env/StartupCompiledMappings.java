@@ -0,0 +1,38 @@
+package com.ibm.cloud.spring.env;
+
+/**
+ * Generated from /mappings.startup.json, do not edit.
+ */
+public final class StartupCompiledMappings implements com.ibm.cloud.spring.env.CloudServicesMappings {
+
+    private static final String[] NAMES = new String[] {"startup.url", "startup.username", "startup.password"};
+
+    @Override
+    public String getLocation() {
+        return "/mappings.startup.json";
+    }
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public String[] getNames() {
+        return NAMES.clone();
+    }
+
+    @Override
+    public String[] getSearchPatterns(String name) {
+        switch (name) {
+            case "startup.url":
+                return new String[] {"env:startup_url", "file:startup.url.txt"};
+            case "startup.username":
+                return new String[] {"env:startup_username", "file:/run/secrets/startup-username"};
+            case "startup.password":
+                return new String[] {"env:startup_password", "file:/run/secrets/startup-password"};
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ibm.cloud.spring.env;
+
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Post processes a new environment and reads one property from it, as the first property
+ * lookup of a starting application does. Loaded by ColdStartBenchmark in a new class loader
+ * each time, so that every class it needs is loaded again.
+ */
+public final class StartupProbe {
+
+    private StartupProbe() {
+    }
+
+    /**
+     * @param mappings The classpath location of the mappings file
+     * @param mappingsClass The class generated from the mappings file, or null to read the mappings file
+     * @param name The property to read
+     * @return The value of the property
+     */
+    public static String firstProperty(String mappings, String mappingsClass, String name) {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(CloudServicesSettings.MAPPINGS, mappings);
+        settings.put(CloudServicesSettings.MAPPINGS_CLASS, mappingsClass != null ? mappingsClass : "none");
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new MapPropertySource("benchmark", settings));
+        new CloudServicesEnvironmentPostProcessor().postProcessEnvironment(environment, null);
+        return environment.getProperty(name);
+    }
+}
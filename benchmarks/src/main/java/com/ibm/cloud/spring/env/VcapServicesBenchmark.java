@@ -0,0 +1,86 @@
+package com.ibm.cloud.spring.env;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures VCAP_SERVICES payloads of increasing size: parsing the whole payload or
+ * only the services referenced by the mappings, and looking up a credential with a
+ * parsed (warm) and an unparsed (cold) snapshot.
+ *
+ * Run with "-prof gc" to report the allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VcapServicesBenchmark {
+
+    @Param({"1", "20", "200"})
+    public int services;
+
+    private String vcapServices;
+    private VcapServices.Selection selection;
+    private CloudServicesConfigMap configMap;
+
+    @Setup
+    public void setUp() {
+        vcapServices = BenchmarkData.vcapServices(services);
+        System.setProperty("VCAP_SERVICES", vcapServices);
+        selection = new VcapServices.Selection();
+        selection.selectPath(JsonQuery.compile("$['cloudantNoSQLDB'][0].credentials.username"));
+        selection.selectUserProvided("bench-instance-id");
+        configMap = BenchmarkData.configMap("/mappings.bench.v2.json");
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("VCAP_SERVICES");
+    }
+
+    @Benchmark
+    public Object parse() {
+        return VcapServices.parse(vcapServices);
+    }
+
+    @Benchmark
+    public Object parseSelected() {
+        return VcapServices.parse(vcapServices, selection);
+    }
+
+    @Benchmark
+    public Object cloudFoundryWarm() {
+        return configMap.getValue("cloudfoundry.hit");
+    }
+
+    @Benchmark
+    public Object cloudFoundryCold() {
+        configMap.invalidateVcapServices();
+        return configMap.getValue("cloudfoundry.hit");
+    }
+
+    @Benchmark
+    public Object userProvidedWarm() {
+        return configMap.getValue("userprovided.hit");
+    }
+
+    @Benchmark
+    public Object userProvidedCold() {
+        configMap.invalidateVcapServices();
+        return configMap.getValue("userprovided.hit");
+    }
+}
@@ -0,0 +1,73 @@
+package com.ibm.cloud.spring.env.maven;
+
+import com.ibm.cloud.spring.env.CloudServicesMappingsGenerator;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Compiles the mappings.json file of the project into a Java class, which is used in place
+ * of reading and parsing the mappings file when the application starts.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class GenerateMappingsMojo extends AbstractMojo {
+
+    /**
+     * The mappings file to compile.
+     */
+    @Parameter(property = "cloudServices.mappingsFile", defaultValue = "${project.basedir}/src/main/resources/mappings.json")
+    private File mappingsFile;
+
+    /**
+     * The classpath location the mappings file is packaged at, which must match "ibm.cloud.spring.bind.mappings".
+     */
+    @Parameter(property = "cloudServices.mappingsLocation", defaultValue = "/mappings.json")
+    private String mappingsLocation;
+
+    /**
+     * The class to generate, which must match "ibm.cloud.spring.bind.mappings.class".
+     */
+    @Parameter(property = "cloudServices.className", defaultValue = CloudServicesMappingsGenerator.DEFAULT_CLASS_NAME)
+    private String className;
+
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/cloud-services", required = true)
+    private File outputDirectory;
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (!mappingsFile.isFile()) {
+            getLog().info("No mappings file at " + mappingsFile + ", skipping");
+            return;
+        }
+        String source;
+        try (InputStream in = Files.newInputStream(mappingsFile.toPath())) {
+            source = CloudServicesMappingsGenerator.generate(mappingsLocation, in, className);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to read " + mappingsFile, e);
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException(mappingsFile + ": " + e.getMessage(), e);
+        }
+        File file = new File(outputDirectory, className.replace('.', File.separatorChar) + ".java");
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write " + file, e);
+        }
+        getLog().info("Generated " + className + " from " + mappingsFile);
+        project.addCompileSourceRoot(outputDirectory.getAbsolutePath());
+    }
+}
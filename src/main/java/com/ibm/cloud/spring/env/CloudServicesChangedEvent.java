@@ -0,0 +1,28 @@
+package com.ibm.cloud.spring.env;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Set;
+
+/**
+ * Published when the source of one or more mapped values has changed, for example
+ * when a mounted secret is rotated, so that beans can rebind the new values.
+ */
+public class CloudServicesChangedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Set<String> names;
+
+    public CloudServicesChangedEvent(CloudServicesConfigMap source, Set<String> names) {
+        super(source);
+        this.names = names;
+    }
+
+    /**
+     * @return The mapped property names whose values may have changed
+     */
+    public Set<String> getNames() {
+        return names;
+    }
+}
@@ -1,90 +1,498 @@
 package com.ibm.cloud.spring.env;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.IntNode;
-import com.jayway.jsonpath.DocumentContext;
-import com.jayway.jsonpath.JsonPath;
-import com.jayway.jsonpath.PathNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.SpringFactoriesLoader;
+import org.springframework.util.ClassUtils;
+
+import javax.crypto.Mac;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
-class CloudServicesConfigMap {
+public class CloudServicesConfigMap {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CloudServicesConfigMap.class);
     private static final String VCAP_SERVICES = "VCAP_SERVICES";
-    private static String mappingsFile = "/mappings.json";
-    private static CloudServicesConfigMap instance;
-    private static JsonNode config = null;            //configuration to be using
-    private final ConcurrentMap<String, DocumentContext> resourceCache = new ConcurrentHashMap<>();    //used to cache resources loaded during processing
-    private int mappingsVersion = 1;
+    private static final String SERVICE_BINDING_ROOT = "SERVICE_BINDING_ROOT";
+    private static final int QUEUE_PER_THREAD = 64;     //tasks queued for each thread of an executor before more are rejected
+    private final ResourceLoader resourceLoader;
+    private final Map<String, SearchPattern[]> plans;    //compiled search patterns for every mapped property name
+    private final PropertyNameTrie names;                //the mapped names, for enumeration and prefix lookups
+    private final ResourceCache<JsonNode> resourceCache;    //parsed JSON files by path
+    private final ResourceCache<String> textCache;          //first line of plain text resources by location, only used while watching
+    private final ConcurrentMap<String, EnvDocument> envDocuments = new ConcurrentHashMap<>();    //parsed JSON environment variables by name
+    private final Set<String> missingJson = ConcurrentHashMap.newKeySet();    //classpath JSON files whose absence has been logged
+    private final Object vcapServicesLock = new Object();
+    private volatile VcapServices vcapServices;    //parsed VCAP_SERVICES shared by the user-provided and cloudfoundry resolvers
+    private final VcapServices.Selection vcapServicesSelection;    //parts of VCAP_SERVICES to parse, null to parse everything
+    private final Object serviceBindingsLock = new Object();
+    private volatile ServiceBindings serviceBindings;    //index of $SERVICE_BINDING_ROOT, read on first use
+    private final ConcurrentMap<String, ResolvedValue> resolvedCache = new ConcurrentHashMap<>();    //resolved values, including not found, when caching is enabled
+    private final AtomicLong generation = new AtomicLong();    //incremented by refresh(), so values resolved before it are not cached
+    private final boolean cacheEnabled;
+    private final long cacheTtlNanos;                 //0 means cached values never expire
+    private volatile LongSupplier clock = System::nanoTime;    //the nanosecond time cached values expire against
+    private final CloudServicesStats stats;           //null when statistics are not being collected
+    private volatile ApplicationContext appContext;   //used to publish change events, set once the context is created
+    private volatile CloudServicesFileWatcher fileWatcher;
+    private final ExecutorService speculativeExecutor;    //runs asynchronous resolvers ahead of time, null if the mappings use none
+    private final ExecutorService refreshExecutor;        //reloads cached files in the background, null if refresh is disabled
+    private final Object asyncExecutorLock = new Object();
+    private final int asyncThreads;
+    private final long resolverTimeoutMillis;             //how long to wait for a speculative lookup
+    private volatile ExecutorService asyncExecutor;       //resolves values for the asynchronous API, created when it is first used
+    private boolean shutdown;                             //guarded by asyncExecutorLock
 
-    @Autowired
-    ApplicationContext appContext;
+    /**
+     * Create a CloudServicesConfigMap from the mappings files in the settings. Every copy of the
+     * mappings file on the classpath is used, with the first taking precedence, then the additional
+     * mappings files override them. The first copy is replaced by the class generated from it at
+     * build time when that is on the classpath.
+     *
+     * @param settings The settings of the environment the config map is for
+     * @param resourceLoader The loader for classpath and file resources
+     */
+    CloudServicesConfigMap(CloudServicesSettings settings, ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+        Map<String, ServiceValueResolver> resolvers = getResolvers();
+        Map<String, SearchPattern[]> merged = new HashMap<>();
+        for (CloudServicesMappings mappings : getMappings(settings)) {
+            merged.putAll(compileMappings(mappings, resolvers));    //later layers replace the whole mapping of a name
+        }
+        this.plans = Collections.unmodifiableMap(merged);
+        this.names = new PropertyNameTrie(plans.keySet());
+        this.cacheEnabled = settings.isCacheEnabled();
+        this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(settings.getCacheTtl());
+        this.stats = settings.isMetricsEnabled() ? new CloudServicesStats(getProtocols()) : null;
+        this.vcapServicesSelection = settings.isVcapStreamingEnabled() ? getVcapServicesSelection() : null;
+        this.speculativeExecutor = hasSpeculativePatterns() ? createExecutor("cloud-services-speculative-", settings.getResolverThreads()) : null;
+        this.refreshExecutor = settings.getFileCacheRefresh() > 0 ? createExecutor("cloud-services-refresh-", 1) : null;
+        this.asyncThreads = settings.getAsyncThreads();
+        this.resolverTimeoutMillis = settings.getResolverTimeout();
+        long negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(settings.getFileCacheNegativeTtl());
+        long refreshNanos = TimeUnit.MILLISECONDS.toNanos(settings.getFileCacheRefresh());
+        // not a method reference, which would load Jackson's JsonNode when the config map is created
+        this.resourceCache = new ResourceCache<>("file", new Function<String, JsonNode>() {
+            @Override
+            public JsonNode apply(String path) {
+                return getJsonFromFile(path);
+            }
+        }, settings.getFileCacheSize(), negativeTtlNanos, refreshNanos, refreshExecutor, stats);
+        this.textCache = new ResourceCache<>("text", this::readFirstLine, settings.getFileCacheSize(),
+                negativeTtlNanos, refreshNanos, refreshExecutor, stats);
+    }
 
     /**
-     * Create a CloudServicesConfigMap from the map file
+     * Get the CloudServicesConfigMap used by the given environment.
      *
-     * @return the configured service mapper
+     * @param environment The environment that was post processed
+     * @return The config map or null if the environment does not contain the cloud services property source
      */
-    static synchronized CloudServicesConfigMap getInstance() {
-        if (instance == null) {
-            instance = new CloudServicesConfigMap();
-            config = instance.getJson(mappingsFile);
+    public static CloudServicesConfigMap from(Environment environment) {
+        if (environment instanceof ConfigurableEnvironment) {
+            PropertySource<?> propertySource = ((ConfigurableEnvironment) environment).getPropertySources()
+                    .get(CloudServicesEnvironmentPostProcessor.PROPERTY_SOURCE_NAME);
+            if (propertySource != null && propertySource.getSource() instanceof CloudServicesConfigMap) {
+                return (CloudServicesConfigMap) propertySource.getSource();
+            }
         }
-        return instance;
+        return null;
     }
 
     /**
-     * Create a CloudServicesConfigMap from the given map file
+     * Get the resolution statistics.
      *
-     * @param mapFile The name of the mapping file
-     * @return The configured service mapper
-     **/
-    static synchronized CloudServicesConfigMap getInstance(String mapFile) {
-        mappingsFile = mapFile;
-        instance = null;        // force refresh
-        return getInstance();
+     * @return The statistics, or null if collection of statistics is not enabled
+     */
+    public CloudServicesStats getStats() {
+        return stats;
+    }
+
+    private VcapServices.Selection getVcapServicesSelection() {
+        VcapServices.Selection selection = new VcapServices.Selection();
+        for (SearchPattern[] plan : plans.values()) {
+            for (SearchPattern pattern : plan) {
+                pattern.select(selection);
+            }
+        }
+        return selection;
+    }
+
+    private Set<String> getProtocols() {
+        Set<String> protocols = new HashSet<>();
+        for (SearchPattern[] plan : plans.values()) {
+            for (SearchPattern pattern : plan) {
+                protocols.add(pattern.getProtocol());
+            }
+        }
+        return protocols;
+    }
+
+    /**
+     * Discard all cached values and parsed sources, so that every value is resolved
+     * again from its source on the next lookup.
+     */
+    public void refresh() {
+        generation.incrementAndGet();
+        resolvedCache.clear();
+        resourceCache.invalidateAll();
+        textCache.invalidateAll();
+        envDocuments.clear();
+        invalidateVcapServices();
+        serviceBindings = null;
+    }
+
+    /**
+     * Watch the file system files referenced by the mappings, and discard the cached
+     * values of the affected names when any of them change. A {@link CloudServicesChangedEvent}
+     * is published to the application context for every change.
+     */
+    synchronized void startWatching() {
+        if (fileWatcher != null) {
+            return;
+        }
+        Set<String> paths = new HashSet<>();
+        for (SearchPattern[] plan : plans.values()) {
+            for (SearchPattern pattern : plan) {
+                if (pattern.getFilePath() != null) {
+                    paths.add(pattern.getFilePath());
+                }
+            }
+        }
+        if (paths.isEmpty()) {
+            return;
+        }
+        try {
+            fileWatcher = new CloudServicesFileWatcher(paths, this::filesChanged);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to watch files referenced by the mappings", e);
+        }
+    }
+
+    /**
+     * Stop watching the files referenced by the mappings.
+     */
+    synchronized void stopWatching() {
+        if (fileWatcher != null) {
+            try {
+                fileWatcher.close();
+            } catch (IOException e) {
+                LOGGER.debug("Unexpected exception closing file watcher", e);
+            }
+            fileWatcher = null;
+            textCache.invalidateAll();    //changes are no longer seen, so read the files on every lookup again
+        }
+    }
+
+    void filesChanged(Set<String> paths) {
+        Set<String> names = new HashSet<>();
+        for (Map.Entry<String, SearchPattern[]> plan : plans.entrySet()) {
+            for (SearchPattern pattern : plan.getValue()) {
+                if (pattern.getFilePath() != null && paths.contains(pattern.getFilePath())) {
+                    names.add(plan.getKey());
+                }
+            }
+        }
+        for (String path : paths) {
+            resourceCache.invalidate(path);
+            textCache.invalidate("file:" + path);
+        }
+        if (cacheEnabled) {
+            for (String name : names) {
+                // a new stale entry rather than a removal, so a lookup which started before the change cannot store its value
+                resolvedCache.put(name, new ResolvedValue(null, 0, -1));
+            }
+        }
+        ApplicationContext context = appContext;
+        if (context != null && !names.isEmpty()) {
+            context.publishEvent(new CloudServicesChangedEvent(this, Collections.unmodifiableSet(names)));
+        }
     }
 
     JsonNode getJson(String path) {
-        LOGGER.debug("getJson() for " + path);
-        ObjectMapper mapper = new ObjectMapper();
+        LOGGER.debug("getJson() for {}", path);
         JsonNode mappings = null;
         try {
-            Resource resource = new ClassPathResource(path);
+            Resource resource = new ClassPathResource(path, resourceLoader.getClassLoader());
             if (resource.exists()) {
                 InputStream fstream = resource.getInputStream();
                 if (fstream != null) {
-                    mappings = mapper.readTree(fstream);
+                    mappings = CloudServicesJson.MAPPER.readTree(fstream);
                 }
             }
         } catch (IOException e) {
-            LOGGER.debug("Unexpected exception getting ObjectMapper for mappings.json: " + e);
+            LOGGER.debug("Unexpected exception getting ObjectMapper for mappings.json", e);
             throw new CloudServicesException("Unexpected exception getting ObjectMapper for mappings.json", e);
         }
-        LOGGER.debug("getMappings() returned: " + mappings);
+        LOGGER.debug("getMappings() returned: {}", mappings);
         if (mappings == null) {
-            LOGGER.warn("Mapping resolution failed : No configuration was found at " + path);
+            // the file is tried again whenever the negative cache entry expires, so only log when it goes missing
+            if (missingJson.add(path)) {
+                LOGGER.warn("Mapping resolution failed : No configuration was found at {}", path);
+            }
+        } else {
+            missingJson.remove(path);
         }
         return mappings;
     }
 
+    /**
+     * Get the layers of mappings, lowest precedence first.
+     *
+     * @param settings The settings of the environment
+     * @return The mappings read from the classpath and the additional mappings files
+     */
+    private List<CloudServicesMappings> getMappings(CloudServicesSettings settings) {
+        ClassLoader classLoader = resourceLoader.getClassLoader() != null ? resourceLoader.getClassLoader() : ClassUtils.getDefaultClassLoader();
+        List<URL> urls;
+        try {
+            urls = Collections.list(classLoader.getResources(new ClassPathResource(settings.getMappings()).getPath()));
+        } catch (IOException e) {
+            throw new CloudServicesException("Unexpected exception finding " + settings.getMappings(), e);
+        }
+        List<CloudServicesMappings> layers = new ArrayList<>();
+        CloudServicesMappings compiled = getCompiledMappings(settings);
+        for (int i = urls.size() - 1; i > 0; i--) {
+            addMappings(layers, new UrlResource(urls.get(i)), settings.getMappings());
+        }
+        if (compiled != null) {
+            layers.add(compiled);
+        } else if (!urls.isEmpty()) {
+            addMappings(layers, new UrlResource(urls.get(0)), settings.getMappings());
+        }
+        for (String location : settings.getAdditionalMappings()) {
+            Resource resource = resourceLoader.getResource(location);
+            if (resource.exists()) {
+                addMappings(layers, resource, location);
+            } else {
+                LOGGER.warn("Ignoring additional mappings : No configuration was found at {}", location);
+            }
+        }
+        if (layers.isEmpty()) {
+            LOGGER.warn("Mapping resolution failed : No configuration was found at {}", settings.getMappings());
+        }
+        return layers;
+    }
+
+    private static void addMappings(List<CloudServicesMappings> layers, Resource resource, String location) {
+        JsonNode json;
+        try (InputStream in = resource.getInputStream()) {
+            json = CloudServicesJson.MAPPER.readTree(in);
+        } catch (IOException e) {
+            throw new CloudServicesException("Unexpected exception reading mappings from " + resource, e);
+        }
+        if (json == null || !json.isObject()) {
+            LOGGER.warn("Ignoring mappings in {}, it does not contain a JSON object", resource);
+        } else {
+            layers.add(new JsonMappings(location, json));
+        }
+    }
+
+    /**
+     * Get the mappings class generated at build time, if there is one for the mappings file in the settings.
+     *
+     * @param settings The settings of the environment
+     * @return The generated mappings, or null to read the mappings file
+     */
+    private CloudServicesMappings getCompiledMappings(CloudServicesSettings settings) {
+        ClassLoader classLoader = resourceLoader.getClassLoader();
+        if (!ClassUtils.isPresent(settings.getMappingsClass(), classLoader)) {
+            return null;
+        }
+        try {
+            CloudServicesMappings mappings = (CloudServicesMappings) ClassUtils.forName(settings.getMappingsClass(), classLoader)
+                    .getDeclaredConstructor().newInstance();
+            if (new ClassPathResource(mappings.getLocation()).getPath().equals(new ClassPathResource(settings.getMappings()).getPath())) {
+                return mappings;
+            }
+            LOGGER.info("Ignoring {} which was generated from {} not {}",
+                    settings.getMappingsClass(), mappings.getLocation(), settings.getMappings());
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+            LOGGER.warn("Unable to load generated mappings {}, reading {}", settings.getMappingsClass(), settings.getMappings(), e);
+        }
+        return null;
+    }
+
+    /**
+     * Get the resolvers registered in spring.factories, by protocol. Built in protocols cannot be replaced,
+     * and if two resolvers have the same protocol the first in order is used.
+     *
+     * @return The resolvers by protocol
+     */
+    private Map<String, ServiceValueResolver> getResolvers() {
+        Map<String, ServiceValueResolver> resolvers = new HashMap<>();
+        for (ServiceValueResolver resolver : SpringFactoriesLoader.loadFactories(ServiceValueResolver.class, resourceLoader.getClassLoader())) {
+            String protocol = resolver.getProtocol();
+            if (SearchPattern.isBuiltIn(protocol)) {
+                LOGGER.warn("Ignoring {}, the {} protocol is built in", resolver.getClass().getName(), protocol);
+            } else if (resolvers.containsKey(protocol)) {
+                LOGGER.warn("Ignoring {}, the {} protocol is handled by {}",
+                        resolver.getClass().getName(), protocol, resolvers.get(protocol).getClass().getName());
+            } else {
+                resolvers.put(protocol, resolver);
+            }
+        }
+        return resolvers;
+    }
+
+    private boolean hasSpeculativePatterns() {
+        for (SearchPattern[] plan : plans.values()) {
+            for (SearchPattern pattern : plan) {
+                if (pattern.isSpeculative()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private ExecutorService getAsyncExecutor() {
+        ExecutorService executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (asyncExecutorLock) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    executor = createExecutor("cloud-services-async-", asyncThreads);
+                    if (shutdown) {
+                        executor.shutdown();    //rejects the work, as it would have if it had been created earlier
+                    }
+                    asyncExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Stop the threads used to resolve values in the background. Asynchronous lookups are
+     * rejected afterwards, and files are no longer refreshed in the background.
+     */
+    void shutdownExecutors() {
+        ExecutorService executor;
+        synchronized (asyncExecutorLock) {
+            shutdown = true;
+            executor = asyncExecutor;
+        }
+        for (ExecutorService service : Arrays.asList(executor, speculativeExecutor, refreshExecutor)) {
+            if (service != null) {
+                service.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Create a pool of daemon threads, which are stopped when idle. The queue is bounded, so
+     * work which cannot keep up is rejected with a RejectedExecutionException rather than
+     * delaying everything submitted after it.
+     */
+    private static ExecutorService createExecutor(final String namePrefix, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);      //no threads are kept once there is nothing to run
+        return executor;
+    }
+
+    /**
+     * Compile the search patterns of every mapped property name, so that lookups for
+     * names which are not mapped can be rejected with a single map probe and mapped
+     * names are resolved without re-parsing the patterns. The patterns of each layer are
+     * compiled with the rules of that layer's mappings version before the layers are merged.
+     *
+     * @param mappings One layer of the mappings
+     * @param resolvers The resolvers for protocols which are not built in, by protocol
+     * @return The compiled search patterns by property name
+     */
+    private static Map<String, SearchPattern[]> compileMappings(CloudServicesMappings mappings, Map<String, ServiceValueResolver> resolvers) {
+        Map<String, SearchPattern[]> compiled = new HashMap<>();
+        for (String name : mappings.getNames()) {
+            compiled.put(name, compileSearchPatterns(name, mappings.getSearchPatterns(name), mappings.getVersion(), resolvers));
+        }
+        return compiled;
+    }
+
+    private static SearchPattern[] compileSearchPatterns(String name, String[] entries, int mappingsVersion,
+                                                         Map<String, ServiceValueResolver> resolvers) {
+        List<SearchPattern> patterns = new ArrayList<>(entries.length);
+        for (String entry : entries) {
+            try {
+                patterns.add(SearchPattern.compile(entry, mappingsVersion, resolvers));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Ignoring search pattern for {} : {}", name, e.getMessage());
+            }
+        }
+        return patterns.toArray(new SearchPattern[patterns.size()]);
+    }
+
+    /**
+     * Check if the given name has an entry in the mappings.
+     *
+     * @param name The property name
+     * @return true if the name is mapped and so may resolve to a value
+     */
+    boolean isMapped(String name) {
+        return plans.containsKey(name);
+    }
+
     /**
      * Get the first value found from the provided searchPatterns, which will be
      * processed in the order provided.
@@ -95,164 +503,387 @@ class CloudServicesConfigMap {
      * @return The value specified by the "src:target" or null if not found
      */
     String getValue(String name) {
-        if (config == null) {
-            return null;    //config wasn't initialised for some reason, so cannot resolve anything
-        }
-        String value = null;
-        IntNode versionNode = (IntNode) config.get("version");
-        if (versionNode != null && !versionNode.isNull()) {
-            mappingsVersion = (Integer) versionNode.numberValue();
-        }
-        JsonNode node = null;
-        if (mappingsVersion > 1) {
-            String keySegment[] = parseOnfirst(name, ".");
-            if (!keySegment[0].isEmpty() && !keySegment[1].isEmpty()) {
-                node = config.get(keySegment[0]);
-                if (node == null || node.isNull()) {
-                    return null;        // 1st segment could not be located
-                }
-                node = node.get(keySegment[1]);
-                if (node == null || node.isNull()) {
-                    return null;        // 2nd segment could not be located
-                }
-            } else {
-                return null;
+        return getValue(name, null);
+    }
+
+    /**
+     * Resolve several names at once. Each source, such as VCAP_SERVICES or an
+     * environment variable containing JSON, is read and parsed once for the whole
+     * batch rather than once per name.
+     *
+     * @param names The property names to resolve
+     * @return An immutable map of the names which resolved to a value, in the order requested
+     */
+    public Map<String, String> resolveAll(Collection<String> names) {
+        Batch batch = new Batch();
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String name : names) {
+            String value = getValue(name, batch);
+            if (value != null) {
+                values.put(name, value);
+            }
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Resolve every mapped name under a prefix, such as "cloudant" for "cloudant.url"
+     * and "cloudant.username", reading each source once as {@link #resolveAll(Collection)} does.
+     *
+     * @param prefix The prefix, without the trailing "."
+     * @return An immutable map of the names under the prefix which resolved to a value
+     */
+    public Map<String, String> resolvePrefix(String prefix) {
+        return resolveAll(names.getNames(prefix));
+    }
+
+    /**
+     * Resolve a name without blocking the calling thread. File, classpath and other I/O is done
+     * on a bounded pool of daemon threads, so this can be used from event loop threads. The
+     * result is the same as the value of the property from the environment.
+     *
+     * @param name The property name
+     * @return The future value, completed with null if the name is not mapped or has no value
+     * @throws RejectedExecutionException If too many lookups are already waiting for a thread
+     */
+    public CompletableFuture<String> resolveAsync(final String name) {
+        if (!plans.containsKey(name)) {
+            return CompletableFuture.completedFuture(null);     //nothing to resolve, so no need to change threads
+        }
+        return CompletableFuture.supplyAsync(() -> getValue(name), getAsyncExecutor());
+    }
+
+    /**
+     * Resolve several names without blocking the calling thread, reading each source once
+     * as {@link #resolveAll(Collection)} does.
+     *
+     * @param names The property names to resolve
+     * @return The future immutable map of the names which resolved to a value, in the order requested
+     */
+    public CompletableFuture<Map<String, String>> resolveAllAsync(Collection<String> names) {
+        final List<String> requested = new ArrayList<>(names);
+        return CompletableFuture.supplyAsync(() -> resolveAll(requested), getAsyncExecutor());
+    }
+
+    /**
+     * Resolve every mapped name under a prefix without blocking the calling thread, reading
+     * each source once as {@link #resolveAll(Collection)} does.
+     *
+     * @param prefix The prefix, without the trailing "."
+     * @return The future immutable map of the names under the prefix which resolved to a value
+     */
+    public CompletableFuture<Map<String, String>> resolvePrefixAsync(String prefix) {
+        return resolveAllAsync(names.getNames(prefix));
+    }
+
+    /**
+     * Check if any mapped names are under a prefix, without resolving them.
+     *
+     * @param prefix The prefix, without the trailing "."
+     * @return true if a mapped name equals the prefix or starts with the prefix followed by "."
+     */
+    public boolean containsPrefix(String prefix) {
+        return names.containsPrefix(prefix);
+    }
+
+    /**
+     * @return Every mapped property name, sorted
+     */
+    String[] getNames() {
+        return names.getNames();
+    }
+
+    private String getValue(String name, Batch batch) {
+        CloudServicesStats stats = this.stats;
+        SearchPattern[] plan = plans.get(name);
+        if (plan == null) {
+            if (stats != null) {
+                stats.recordUnmapped();
             }
+            return null;    //not in the mappings, so nothing to resolve
+        }
+        String value;
+        if (!cacheEnabled) {
+            value = resolve(plan, batch, stats);
         } else {
-            node = config.get(name);
-            if (node == null || node.isNull()) {
-                return null;        //specified name could not be located
-            }
-        }
-        
-        if (node.get("credentials") != null) {
-            node = node.get("credentials");
-        }
-        ArrayNode array = (ArrayNode) node.get("searchPatterns");
-        if (array.isArray()) {
-            for (final JsonNode entryNode : array) {
-                String entry = entryNode.asText();
-                LOGGER.debug("entryNode " + entryNode);
-                String token[] = parseOnfirst(entry, ":");
-                LOGGER.debug("tokens " + token[0] + " , " + token[1]);
-                if (!token[0].isEmpty() && !token[1].isEmpty()) {
-                    switch (token[0]) {
-                        case "user-provided":
-                            value = getUserProvidedValue(token[1]);
-                            break;
-                        case "cloudfoundry":
-                            value = getCloudFoundryValue(token[1]);
-                            break;
-                        case "env":
-                            value = getEnvValue(token[1]);
-                            break;
-                        case "file":
-                            value = getFileValue(token[1]);
-                            break;
-                        default:
-                            LOGGER.warn("Unknown protocol in searchPatterns : " + token[0]);
-                            break;
-                    }
+            long now = clock.getAsLong();
+            long generation = this.generation.get();
+            ResolvedValue cached = resolvedCache.get(name);
+            if (cached != null && cached.generation == generation && !cached.isExpired(now)) {
+                if (stats != null) {
+                    stats.recordCacheHit("resolved");
                 }
-                if (value != null) {
-                    break;
+                value = cached.value;
+            } else {
+                if (stats != null) {
+                    stats.recordCacheMiss("resolved");
+                }
+                value = resolve(plan, batch, stats);
+                // a refresh() while resolving leaves an entry from the old generation, which is never used, and a
+                // file change while resolving replaces the entry that was read, so the value is not stored
+                ResolvedValue resolved = new ResolvedValue(value, cacheTtlNanos == 0 ? 0 : now + cacheTtlNanos, generation);
+                if (cached == null) {
+                    resolvedCache.putIfAbsent(name, resolved);
+                } else {
+                    resolvedCache.replace(name, cached, resolved);
                 }
             }
-        } else {
-            LOGGER.warn("search patterns in mapping.json is NOT an array, values will not be resolved");
+        }
+        if (stats != null) {
+            if (value != null) {
+                stats.recordHit();
+            } else {
+                stats.recordMiss();
+            }
         }
         return value;
     }
 
-    private String[] parseOnfirst(String entry, String delimiter) {
-        String token[] = {"", ""};
-        int i = entry.indexOf(delimiter);
-        if (i > 1) {
-            token[0] = entry.substring(0, i).trim();
-            token[1] = entry.substring(i + 1).trim();
+    /**
+     * Resolve every mapped name, bypassing the cache of resolved values, and report how
+     * each was resolved. The search patterns are tried one at a time so the time taken
+     * by each name is not affected by the others.
+     *
+     * @return The resolution of every mapped name, sorted by name
+     */
+    public List<CloudServicesResolution> diagnose() {
+        List<CloudServicesResolution> resolutions = new ArrayList<>(plans.size());
+        for (String name : names.getNames()) {
+            SearchPattern[] plan = plans.get(name);
+            long start = System.nanoTime();
+            CloudServicesResolution resolution = null;
+            for (int i = 0; i < plan.length && resolution == null; i++) {
+                String value = plan[i].resolve(this, null);
+                if (value != null) {
+                    resolution = new CloudServicesResolution(name, plan[i].toString(), i, plan[i].getProtocol(),
+                            System.nanoTime() - start, value);
+                }
+            }
+            resolutions.add(resolution != null ? resolution
+                    : new CloudServicesResolution(name, null, -1, null, System.nanoTime() - start, null));
         }
-        return token;
+        return resolutions;
     }
 
-    private String getJsonValue(String jsonPath, String json) {
-        String value = null;
-        if (jsonPath != null && json != null) {
-            try {
-                value = JsonPath.parse(json).read(jsonPath);
+    /**
+     * Add the mappings, and the state of every source they read, to a fingerprint. Environment
+     * variables are added by value, files and classpath resources by modification time and size,
+     * and the service binding root by the modification times and sizes of the files under it.
+     *
+     * @param mac The fingerprint
+     * @return false if a search pattern reads a source whose changes cannot be detected
+     */
+    boolean fingerprint(Mac mac) {
+        Set<String> sources = new TreeSet<>();
+        for (String name : names.getNames()) {
+            update(mac, name);
+            for (SearchPattern pattern : plans.get(name)) {
+                String source = pattern.getSource();
+                if (source == null) {
+                    return false;
+                }
+                update(mac, pattern.toString());
+                sources.add(source);
             }
-            catch (PathNotFoundException e) {
+        }
+        for (String source : sources) {
+            update(mac, source);
+            if (source.startsWith("env:")) {
+                update(mac, getEnvironmentValue(source.substring("env:".length())));
+            } else if (source.equals("binding")) {
+                String root = getEnvironmentValue(SERVICE_BINDING_ROOT);
+                update(mac, root);
+                if (root != null && !root.isEmpty()) {
+                    update(mac, getFileState(Paths.get(root), 2));
+                }
+            } else {
+                Resource resource = resourceLoader.getResource(source);
+                try {
+                    update(mac, resource.exists() ? resource.lastModified() + ":" + resource.contentLength() : null);
+                } catch (IOException e) {
+                    update(mac, "unreadable");
+                }
             }
         }
-        return value;
+        return true;
     }
 
-    // Search pattern resolvers
-
+    private static void update(Mac mac, String value) {
+        if (value == null) {
+            mac.update((byte) 0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            mac.update((byte) 1);
+            mac.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+            mac.update(bytes);
+        }
+    }
 
-    private String getUserProvidedValue(String pattern) {
-        LOGGER.debug("user-provided entry found:  " + pattern);
-        String value = null;
-        String vcap_services = getEnvironmentValue(VCAP_SERVICES);
-        if (vcap_services == null || vcap_services.isEmpty() || pattern == null) {
-            LOGGER.debug("No VCAP_SERVICES or no user-provided pattern");
-            return null;
+    private static String getFileState(Path root, int depth) {
+        try (Stream<Path> files = Files.walk(root, depth)) {
+            StringBuilder state = new StringBuilder();
+            files.sorted().forEach(file -> {
+                try {
+                    state.append(root.relativize(file)).append(':').append(Files.getLastModifiedTime(file).toMillis())
+                            .append(':').append(Files.size(file)).append('\n');
+                } catch (IOException e) {
+                    state.append(root.relativize(file)).append(":unreadable\n");
+                }
+            });
+            return state.toString();
+        } catch (IOException | UncheckedIOException e) {
+            return "unreadable";
         }
-        int i = pattern.lastIndexOf(":");
-        if (i == -1 || i == pattern.length() - 1) {
-            LOGGER.info("Invalid user-provided pattern");
-            return null;
+    }
+
+    /**
+     * Resolve every mapped name, running the resolutions in parallel.
+     *
+     * @param parallelism The maximum number of names to resolve at the same time
+     * @return An immutable map of the names which resolved to a value
+     */
+    Map<String, String> resolveMappings(int parallelism) {
+        if (plans.isEmpty()) {
+            return Collections.emptyMap();
         }
-        String serviceName = pattern.substring(0, i);
-        String credentialKey = pattern.substring(i+1);
-        ObjectMapper mapper = new ObjectMapper();
+        int threads = Math.max(1, Math.min(parallelism, plans.size()));
+        final Queue<String> remaining = new ConcurrentLinkedQueue<>(plans.keySet());
+        final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+        ExecutorService executor = createExecutor("cloud-services-mappings-", threads);
         try {
-            JsonNode vs = mapper.readTree(vcap_services);
-            JsonNode userProvided = (ArrayNode) vs.get("user-provided");
-            if (userProvided.isArray()) {
-                ArrayNode array = (ArrayNode) userProvided;
-                LOGGER.debug("Found user-provided array");
-                for (final JsonNode entryNode : array) {
-                    JsonNode nameNode = entryNode.get("name");
-                    LOGGER.debug("Found user-provided array entry name field");
-                    if (nameNode != null) {
-                        LOGGER.debug("user-provided array entry name: " + nameNode.asText());
-                        String name = nameNode.asText();
-                        if (name != null && name.equals(serviceName)) {
-                            JsonNode creds = entryNode.get("credentials");
-                            if (creds != null) {
-                                LOGGER.debug("Found user-provided array entry credentials");
-                                value = JsonPath.parse(creds.toString()).read(credentialKey);
-                                break;
+            // one task per thread taking names from the queue, so the bounded executor queue is never filled
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    String name;
+                    while ((name = remaining.poll()) != null) {
+                        try {
+                            String value = getValue(name);
+                            if (value != null) {
+                                values.put(name, value);
                             }
+                        } catch (RuntimeException e) {
+                            LOGGER.warn("Unable to resolve {}", name, e);
                         }
                     }
-                }
+                }));
             }
-            else {
-                LOGGER.info("VCAP_SERVICES user-provided field is not an array");
+            for (Future<?> worker : workers) {
+                worker.get();
             }
-        } catch (Exception e) {
-            LOGGER.info("Unexpected exception reading VCAP_SERVICES: " + e);
+            return Collections.unmodifiableMap(new HashMap<>(values));
+        } catch (ExecutionException e) {
+            throw new CloudServicesException("Unexpected exception resolving mappings", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CloudServicesException("Interrupted while resolving mappings", e);
+        } finally {
+            executor.shutdownNow();
         }
-        return value;
     }
 
-    private String getCloudFoundryValue(String target) {
-        if (!target.startsWith("$"))
+    /**
+     * Try each pattern of a plan in order, returning the first value found. The leading patterns
+     * which read values held in memory are tried first. If none of them finds a value, the later
+     * patterns handled by costly asynchronous resolvers are all started, so their latency overlaps
+     * with the earlier patterns, but a value from one is only used if every earlier pattern found
+     * nothing. This is only called when the value is not in the resolved cache.
+     */
+    private String resolve(SearchPattern[] plan, Batch batch, CloudServicesStats stats) {
+        List<CompletableFuture<String>> started = null;
+        boolean speculated = speculativeExecutor == null;
+        try {
+            for (int i = 0; i < plan.length; i++) {
+                if (!speculated && !plan[i].isInMemory()) {
+                    started = startSpeculative(plan, i);
+                    speculated = true;
+                }
+                CompletableFuture<String> future = started == null ? null : started.get(i);
+                String value;
+                if (stats == null) {
+                    value = future == null ? plan[i].resolve(this, batch) : await(plan[i], future);
+                } else {
+                    long start = System.nanoTime();
+                    value = future == null ? plan[i].resolve(this, batch) : await(plan[i], future);
+                    stats.recordResolution(plan[i].getProtocol(), i, System.nanoTime() - start, value != null);
+                }
+                if (value != null) {
+                    return value;
+                }
+            }
             return null;
-        return getJsonValue(target, getEnvironmentValue(VCAP_SERVICES));
+        } finally {
+            if (started != null) {
+                for (CompletableFuture<String> future : started) {
+                    if (future != null) {
+                        future.cancel(false);       //a value was found earlier, so the result is not needed, a queued lookup is skipped
+                    }
+                }
+            }
+        }
     }
 
-    private String getEnvValue(String target) {
-        String value = null;
-        if (target.contains(":")) {
-            String token[] = parseOnfirst(target, ":");
-            LOGGER.debug("envtokens " + token[0] + " , " + token[1]);
-            if (!token[0].isEmpty() && !token[1].isEmpty() && token[1].startsWith("$")) {
-                value = getJsonValue(token[1], getEnvironmentValue(token[0]));
+    /**
+     * @param from The position of the first pattern to start
+     * @return The futures of the speculative patterns at the same positions as the plan, or null if there are none
+     */
+    private List<CompletableFuture<String>> startSpeculative(SearchPattern[] plan, int from) {
+        List<CompletableFuture<String>> started = null;
+        for (int i = from; i < plan.length; i++) {
+            if (plan[i].isSpeculative()) {
+                if (started == null) {
+                    started = new ArrayList<>(Collections.nCopies(plan.length, (CompletableFuture<String>) null));
+                }
+                try {
+                    started.set(i, plan[i].resolveAsync(this, speculativeExecutor));
+                } catch (RejectedExecutionException e) {
+                    // too many lookups are already queued, so this one is not started early but resolved in turn
+                } catch (RuntimeException e) {
+                    CompletableFuture<String> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(e);
+                    started.set(i, failed);
+                }
             }
-        } else {
-            value = getEnvironmentValue(target);
+        }
+        return started;
+    }
+
+    private String await(SearchPattern pattern, CompletableFuture<String> future) {
+        try {
+            return future.get(resolverTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            LOGGER.warn("Unable to resolve {}", pattern, e.getCause());
+            return null;
+        } catch (TimeoutException e) {
+            LOGGER.warn("Unable to resolve {}, no value after {} ms", pattern, resolverTimeoutMillis);
+            future.cancel(true);
+            return null;    //the next pattern is tried, as if this one found nothing
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CloudServicesException("Interrupted while resolving " + pattern, e);
+        }
+    }
+
+    // Search pattern resolvers
+
+    String getUserProvidedValue(String serviceName, JsonQuery credentialKey, Batch batch) {
+        VcapServices vcapServices = getVcapServices(batch);
+        if (vcapServices == null) {
+            LOGGER.debug("No VCAP_SERVICES");
+            return null;
+        }
+        return vcapServices.readUserProvided(serviceName, credentialKey);
+    }
+
+    String getCloudFoundryValue(JsonQuery jsonPath, Batch batch) {
+        VcapServices vcapServices = getVcapServices(batch);
+        return vcapServices == null ? null : vcapServices.read(jsonPath);
+    }
+
+    String getEnvValue(String variable, JsonQuery jsonPath, Batch batch) {
+        String value = getEnvironmentValue(variable, batch);
+        if (value != null && jsonPath != null) {
+            value = jsonPath.read(getEnvDocument(variable, value));
         }
         if (value != null) {
             value = sanitiseString(value);
@@ -260,77 +891,128 @@ class CloudServicesConfigMap {
         return value;
     }
 
-    private String getFileValue(String target) {
-        String value = null;
-        if (target.contains(":")) {
-            String token[] = parseOnfirst(target, ":");
-            if (!token[0].isEmpty() && !token[1].isEmpty() && token[1].startsWith("$")) {
-                try {
-                    String path = token[0];
-                    DocumentContext context = resourceCache.computeIfAbsent(path, filePath -> getJsonStringFromFile(filePath));
-                    value = context.read(token[1]);
-                } catch (PathNotFoundException e) {
-                    return null;    //no data matching the specified json path
-                }
-            }
+    String getFileValue(String path, JsonQuery jsonPath) {
+        JsonNode document = resourceCache.get(path);
+        return document == null ? null : jsonPath.read(document);
+    }
+
+    String getResourceValue(String location) {
+        // without the watcher a changed file, such as a rotated secret, is only seen by reading it every time
+        return fileWatcher != null ? textCache.get(location) : readFirstLine(location);
+    }
+
+    String getBindingValue(String name, String type, String key, Batch batch) {
+        ServiceBindings bindings;
+        if (batch == null) {
+            bindings = getServiceBindings();
         } else {
-            // if no location within the file has been specified then
-            // assume that the value == the first line of the file contents
-            // Relative path means it's a classpath resource
-            String path;
-            if (mappingsVersion > 1) {
-                path = target.startsWith("/") ? "file:" + target.trim() : "classpath:" + target.trim();
-            }
-            else {
-                path = target.startsWith("/server/") ? "classpath:" + target.substring("/server/".length()) : "file:" + target.trim();
-            }
-            LOGGER.debug("Looking for resource : " + path);
-            try {
-                Resource resource = appContext.getResource(path);
-                if (resource.exists()) {
-                    InputStream fstream = resource.getInputStream();
-                    if (fstream != null) {
-                        InputStreamReader isReader = new InputStreamReader(fstream);
-                        BufferedReader reader = new BufferedReader(isReader);
-                        value = reader.readLine();
-                    }
-                }
-            } catch (IOException e) {
-                LOGGER.debug("Unexpected exception getting ObjectMapper for mappings.json: " + e);
-                throw new CloudServicesException("Unexpected exception getting ObjectMapper for mappings.json", e);
+            if (batch.serviceBindings == null) {
+                batch.serviceBindings = getServiceBindings();
             }
+            bindings = batch.serviceBindings;
+        }
+        return name != null ? bindings.getByName(name, key) : bindings.getByType(type, key);
+    }
+
+    String getResolverValue(ServiceValueResolver resolver, String target) {
+        try {
+            return resolver.resolve(target);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to resolve {}:{}", resolver.getProtocol(), target, e);
+            return null;
         }
-        return value;
     }
 
     //end search pattern resolvers
 
-    private DocumentContext getJsonStringFromFile(String filePath) {
-        String json = null;
+    private VcapServices getVcapServices(Batch batch) {
+        if (batch == null) {
+            return getVcapServices();
+        }
+        if (!batch.vcapServicesRead) {
+            batch.vcapServices = getVcapServices();
+            batch.vcapServicesRead = true;
+        }
+        return batch.vcapServices;
+    }
+
+    private String getEnvironmentValue(String variable, Batch batch) {
+        if (batch == null) {
+            return getEnvironmentValue(variable);
+        }
+        return batch.environmentValues.computeIfAbsent(variable, v -> Optional.ofNullable(getEnvironmentValue(v))).orElse(null);
+    }
+
+    /**
+     * Get the parsed JSON of an environment variable or system property, parsing it on first
+     * use or if the value has changed. The document is shared by every search pattern which
+     * reads the variable.
+     */
+    private JsonNode getEnvDocument(String variable, String value) {
+        CloudServicesStats stats = this.stats;
+        EnvDocument document = envDocuments.get(variable);
+        if (document != null && document.isParseOf(value)) {
+            if (stats != null) {
+                stats.recordCacheHit("env");
+            }
+            return document.json;
+        }
+        if (stats != null) {
+            stats.recordCacheMiss("env");
+        }
+        document = new EnvDocument(value, parseEnvDocument(variable, value));
+        envDocuments.put(variable, document);
+        return document.json;
+    }
+
+    private JsonNode parseEnvDocument(String variable, String value) {
+        try {
+            recordJsonParse();
+            return CloudServicesJson.parse(value);
+        } catch (IOException e) {
+            LOGGER.debug("Unexpected exception reading JSON from {}", variable, e);
+            return CloudServicesJson.missing();     //keeps MissingNode out of this class, which is loaded even when no JSON is read
+        }
+    }
+
+    private String readFirstLine(String location) {
+        LOGGER.debug("Looking for resource : {}", location);
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            return null;
+        }
+        recordFileRead();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream()))) {
+            return reader.readLine();
+        } catch (IOException e) {
+            LOGGER.debug("Unexpected exception reading resource {}", location, e);
+            throw new CloudServicesException("Unexpected exception reading resource " + location, e);
+        }
+    }
+
+    private JsonNode getJsonFromFile(String filePath) {
+        JsonNode json = null;
         if (filePath != null && !filePath.isEmpty()) {
             // Relative path or /server/ means it's a classpath resource
             if (!filePath.startsWith("/") || filePath.startsWith("/server/")) {
                 String path = filePath.startsWith("/server/") ? filePath.substring("/server/".length()) : filePath;
-                LOGGER.debug("Looking for classpath resource : " + path);
-                JsonNode node = getJson(path);
-                if (node != null) {
-                    json = node.toString();
-                    LOGGER.debug("Class path json : " + json);
-                }
+                LOGGER.debug("Looking for classpath resource : {}", path);
+                recordFileRead();
+                recordJsonParse();
+                json = getJson(path);
             } else {
                 // absolute path
-                LOGGER.debug("Looking for file: " + filePath);
+                LOGGER.debug("Looking for file: {}", filePath);
+                recordFileRead();
+                recordJsonParse();
                 try {
-                    json = new String(Files.readAllBytes(Paths.get(filePath)));
+                    json = CloudServicesJson.parse(new String(Files.readAllBytes(Paths.get(filePath))));
                 } catch (Exception e) {
-                    LOGGER.debug("Unexpected exception reading JSON string from file: " + e);
+                    LOGGER.debug("Unexpected exception reading JSON string from file", e);
                 }
             }
         }
-        if (json == null) {
-            return JsonPath.parse("{}");    //parse an empty object and set that for the context if the file cannot be loaded for some reason
-        }
-        return JsonPath.parse(json);
+        return json;    //null if the file cannot be loaded for some reason, which is only cached for a short time
     }
 
     private String sanitiseString(String data) throws CloudServicesException {
@@ -345,6 +1027,84 @@ class CloudServicesConfigMap {
         return data;
     }
 
+    /**
+     * Get the parsed VCAP_SERVICES, parsing it on first use or if the value has changed.
+     *
+     * @return The shared snapshot or null if VCAP_SERVICES is not set
+     */
+    private VcapServices getVcapServices() {
+        String source = getEnvironmentValue(VCAP_SERVICES);
+        if (source == null || source.isEmpty()) {
+            return null;
+        }
+        VcapServices snapshot = vcapServices;
+        if (snapshot == null || !snapshot.isSnapshotOf(source)) {
+            synchronized (vcapServicesLock) {      //only parse once when resolving in parallel
+                snapshot = vcapServices;
+                if (snapshot == null || !snapshot.isSnapshotOf(source)) {
+                    recordJsonParse();
+                    snapshot = VcapServices.parse(source, vcapServicesSelection);
+                    vcapServices = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private void recordFileRead() {
+        CloudServicesStats stats = this.stats;
+        if (stats != null) {
+            stats.recordFileRead();
+        }
+    }
+
+    private void recordJsonParse() {
+        CloudServicesStats stats = this.stats;
+        if (stats != null) {
+            stats.recordJsonParse();
+        }
+    }
+
+    /**
+     * Get the index of the service bindings, scanning the binding root on first use or if it has changed.
+     *
+     * @return The shared index, empty if SERVICE_BINDING_ROOT is not set
+     */
+    private ServiceBindings getServiceBindings() {
+        String root = getEnvironmentValue(SERVICE_BINDING_ROOT);
+        if (root == null || root.isEmpty()) {
+            return ServiceBindings.EMPTY;
+        }
+        ServiceBindings bindings = serviceBindings;
+        if (bindings == null || !bindings.isScanOf(root)) {
+            synchronized (serviceBindingsLock) {     //only scan once when resolving in parallel
+                bindings = serviceBindings;
+                if (bindings == null || !bindings.isScanOf(root)) {
+                    recordFileRead();
+                    bindings = ServiceBindings.scan(root);
+                    serviceBindings = bindings;
+                }
+            }
+        }
+        return bindings;
+    }
+
+    /**
+     * Discard the parsed VCAP_SERVICES so that it is parsed again on the next lookup.
+     */
+    void invalidateVcapServices() {
+        vcapServices = null;
+    }
+
+    /**
+     * Replace the clock that cached values expire against, so tests can move time forward.
+     *
+     * @param clock Returns the current time in nanoseconds, like System.nanoTime()
+     */
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
     private static String getEnvironmentValue(String key) {
         String value = System.getenv(key);
         if (value == null) {
@@ -353,6 +1113,60 @@ class CloudServicesConfigMap {
         return value;
     }
 
+    /**
+     * The sources read while resolving a batch of names, so that each is read once per batch.
+     * A batch is used by a single thread.
+     */
+    static final class Batch {
+        private VcapServices vcapServices;
+        private boolean vcapServicesRead;
+        private ServiceBindings serviceBindings;
+        private final Map<String, Optional<String>> environmentValues = new HashMap<>();
+    }
+
+    /**
+     * The parsed JSON of an environment variable or system property, and the value it was parsed from.
+     */
+    private static final class EnvDocument {
+        private final String source;
+        private final int hash;             //hash of the source, so a changed value is usually detected without comparing it
+        private final JsonNode json;
+
+        EnvDocument(String source, JsonNode json) {
+            this.source = source;
+            this.hash = source.hashCode();
+            this.json = json;
+        }
+
+        boolean isParseOf(String value) {
+            return source == value || (hash == value.hashCode() && source.equals(value));
+        }
+    }
+
+    /**
+     * A resolved value held in the cache, null if the value was not found.
+     */
+    private static final class ResolvedValue {
+        private final String value;
+        private final long expiresAt;       //clock time after which the value is stale, 0 for never
+        private final long generation;      //the refresh() generation the value was resolved in, -1 once its file has changed
+
+        ResolvedValue(String value, long expiresAt, long generation) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.generation = generation;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt > 0;
+        }
+    }
+
+    /**
+     * Set the application context that change events are published to.
+     *
+     * @param appContext The application context created for the environment
+     */
     public void setAppContext(ConfigurableApplicationContext appContext) {
         this.appContext = appContext;
     }
@@ -0,0 +1,28 @@
+package com.ibm.cloud.spring.env;
+
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.core.env.Environment;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Actuator endpoint reporting how every mapped name resolves, see {@link CloudServicesConfigMap#diagnose()}.
+ * Like other endpoints it can be configured with the "endpoints.cloudservices.*" properties, and it is
+ * sensitive by default.
+ */
+public class CloudServicesEndpoint extends AbstractEndpoint<List<CloudServicesResolution>> {
+
+    private final Environment environment;
+
+    public CloudServicesEndpoint(Environment environment) {
+        super("cloudservices");
+        this.environment = environment;
+    }
+
+    @Override
+    public List<CloudServicesResolution> invoke() {
+        CloudServicesConfigMap configMap = CloudServicesConfigMap.from(environment);
+        return configMap == null ? Collections.<CloudServicesResolution>emptyList() : configMap.diagnose();
+    }
+}
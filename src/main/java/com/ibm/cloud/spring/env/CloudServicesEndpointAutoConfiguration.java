@@ -0,0 +1,22 @@
+package com.ibm.cloud.spring.env;
+
+import org.springframework.boot.actuate.endpoint.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Registers the {@link CloudServicesEndpoint} when Spring Boot Actuator is on the classpath.
+ */
+@Configuration
+@ConditionalOnClass(Endpoint.class)
+public class CloudServicesEndpointAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CloudServicesEndpoint cloudServicesEndpoint(Environment environment) {
+        return new CloudServicesEndpoint(environment);
+    }
+}
@@ -1,16 +1,97 @@
 package com.ibm.cloud.spring.env;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.context.config.ConfigFileApplicationListener;
 import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.annotation.Order;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+
+import java.nio.file.Paths;
+import java.util.Map;
 
 @Order(ConfigFileApplicationListener.DEFAULT_ORDER - 1)
 public class CloudServicesEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloudServicesEnvironmentPostProcessor.class);
+
+    static final String PROPERTY_SOURCE_NAME = "CloudServicesConfigMap";
+
     @Override
     public void postProcessEnvironment(ConfigurableEnvironment environment,
                                        SpringApplication application) {
-        environment.getPropertySources().addFirst(new CloudServicesPropertySource("CloudServicesConfigMap"));
+        CloudServicesSettings settings = new CloudServicesSettings(environment);
+        ResourceLoader resourceLoader = application != null && application.getResourceLoader() != null
+                ? application.getResourceLoader() : new DefaultResourceLoader();
+        CloudServicesConfigMap configMap;
+        try {
+            configMap = new CloudServicesConfigMap(settings, resourceLoader);
+        } catch (CloudServicesException e) {
+            LOGGER.warn("Error reading configMap file", e);
+            return;
+        }
+        if (application != null) {
+            application.addInitializers(context -> {
+                configMap.setAppContext(context);
+                context.addApplicationListener(event -> {
+                    if (event instanceof ContextClosedEvent && ((ContextClosedEvent) event).getApplicationContext() == context) {
+                        configMap.stopWatching();
+                        configMap.shutdownExecutors();
+                    } else if (event instanceof ContextRefreshedEvent && settings.isDiagnosticsReportEnabled()
+                            && ((ContextRefreshedEvent) event).getApplicationContext() == context) {
+                        report(configMap);
+                    }
+                });
+            });
+        }
+        if (settings.isEagerEnabled()) {
+            if (settings.isWatchEnabled()) {
+                LOGGER.warn("Ignoring {}, values resolved at startup are not updated when files change. Unset {} and {} to watch files",
+                        CloudServicesSettings.WATCH_ENABLED, CloudServicesSettings.EAGER_ENABLED, CloudServicesSettings.SNAPSHOT_FILE);
+            }
+            // resolve everything now and publish the values instead of resolving on each lookup
+            environment.getPropertySources().addFirst(new CloudServicesSnapshotPropertySource(PROPERTY_SOURCE_NAME,
+                    configMap, resolveMappings(configMap, settings)));
+            return;
+        }
+        if (settings.isWatchEnabled()) {
+            configMap.startWatching();
+        }
+        environment.getPropertySources().addFirst(new CloudServicesPropertySource(PROPERTY_SOURCE_NAME, configMap));
+    }
+
+    /**
+     * Resolve every mapped value, or restore them from the snapshot file if it was written
+     * with the same mappings and the sources have not changed since.
+     */
+    private static Map<String, String> resolveMappings(CloudServicesConfigMap configMap, CloudServicesSettings settings) {
+        if (settings.getSnapshotFile() == null) {
+            return configMap.resolveMappings(settings.getEagerThreads());
+        }
+        CloudServicesSnapshot snapshot = new CloudServicesSnapshot(Paths.get(settings.getSnapshotFile()), settings.getSnapshotKey());
+        byte[] fingerprint = snapshot.fingerprint(configMap);
+        if (fingerprint == null) {
+            LOGGER.info("Not using snapshot {}, the mappings use sources which cannot be checked for changes", settings.getSnapshotFile());
+            return configMap.resolveMappings(settings.getEagerThreads());
+        }
+        Map<String, String> values = snapshot.read(fingerprint);
+        if (values == null) {
+            values = configMap.resolveMappings(settings.getEagerThreads());
+            snapshot.write(fingerprint, values);
+        }
+        return values;
+    }
+
+    private static void report(CloudServicesConfigMap configMap) {
+        StringBuilder report = new StringBuilder("Cloud services resolution report:");
+        for (CloudServicesResolution resolution : configMap.diagnose()) {
+            report.append(System.lineSeparator()).append("  ").append(resolution);
+        }
+        LOGGER.info(report.toString());
     }
 }
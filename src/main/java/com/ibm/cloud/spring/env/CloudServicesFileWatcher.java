@@ -0,0 +1,224 @@
+package com.ibm.cloud.spring.env;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Watches the files referenced by the mappings and reports the ones whose content
+ * has changed.
+ *
+ * The directories containing the files are watched rather than the files, and any
+ * event in a directory causes the files in it to be checked. This handles Kubernetes
+ * secret and config map volumes, where each file is a symlink through a "..data"
+ * symlink which is atomically swapped to a new directory when the content changes,
+ * so no event is ever raised for the file names themselves.
+ *
+ * A file whose directory does not exist yet, such as one in a volume mounted after the
+ * application starts, is watched through its nearest existing ancestor directory until
+ * its own directory is created.
+ */
+final class CloudServicesFileWatcher implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloudServicesFileWatcher.class);
+
+    /**
+     * Callback for files which have changed.
+     */
+    interface Listener {
+        /**
+         * @param paths The paths, as given to the watcher, of the files which have changed
+         */
+        void filesChanged(Set<String> paths);
+    }
+
+    private final WatchService watchService;
+    private final Listener listener;
+    private final Map<Path, Map<String, FileState>> directories = new HashMap<>();    //directory -> watched path -> last seen state
+    private final Map<Path, Set<String>> waiting = new HashMap<>();       //existing ancestor -> watched paths whose directory does not exist yet
+    private final Thread thread;
+
+    /**
+     * Start watching the given files.
+     *
+     * @param paths The absolute paths of the files to watch
+     * @param listener The callback for changed files, called on the watcher thread
+     * @throws IOException if the watch service could not be created
+     */
+    CloudServicesFileWatcher(Collection<String> paths, Listener listener) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.listener = listener;
+        for (String path : paths) {
+            if (!watch(path, FileState.of(path))) {
+                LOGGER.info("The directory of {} does not exist, it will be watched once it is created", path);
+            }
+        }
+        this.thread = new Thread(this::run, "cloud-services-file-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Watch the directory of a file, or its nearest existing ancestor until that directory is created.
+     *
+     * @param path The path of the file
+     * @param state The state of the file to report changes from
+     * @return true if the directory of the file is watched, false if an ancestor is watched instead
+     */
+    private boolean watch(String path, FileState state) throws IOException {
+        Path directory = Paths.get(path).toAbsolutePath().getParent();
+        if (directory != null && Files.isDirectory(directory)) {
+            if (!directories.containsKey(directory)) {
+                register(directory);
+                directories.put(directory, new HashMap<String, FileState>());
+            }
+            directories.get(directory).put(path, state);
+            return true;
+        }
+        Path ancestor = directory;
+        while (ancestor != null && !Files.isDirectory(ancestor)) {
+            ancestor = ancestor.getParent();
+        }
+        if (ancestor != null) {
+            register(ancestor);
+            waiting.computeIfAbsent(ancestor, k -> new HashSet<>()).add(path);
+        }
+        return false;
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                key.pollEvents();       //the events only identify the directory which needs checking
+                Path directory = (Path) key.watchable();
+                Set<String> changed = new HashSet<>(checkDirectory(directory));
+                changed.addAll(checkWaiting(directory));
+                key.reset();
+                if (!changed.isEmpty()) {
+                    LOGGER.info("Files referenced by the mappings have changed : {}", changed);
+                    try {
+                        listener.filesChanged(changed);
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Unexpected exception handling changed files", e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed, so stop watching
+        }
+    }
+
+    private Set<String> checkDirectory(Path directory) {
+        Map<String, FileState> files = directories.get(directory);
+        if (files == null) {
+            return Collections.emptySet();
+        }
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, FileState> file : files.entrySet()) {
+            FileState state = FileState.of(file.getKey());
+            if (!state.equals(file.getValue())) {
+                file.setValue(state);
+                changed.add(file.getKey());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Move the files waiting for a directory under the given ancestor closer to being watched.
+     *
+     * @return The files found in directories which have been created
+     */
+    private Set<String> checkWaiting(Path ancestor) {
+        Set<String> paths = waiting.remove(ancestor);
+        if (paths == null) {
+            return Collections.emptySet();
+        }
+        Set<String> changed = new HashSet<>();
+        for (String path : paths) {
+            try {
+                if (watch(path, FileState.MISSING)) {
+                    LOGGER.debug("Watching {} now that its directory has been created", path);
+                    // the file may have been written before its directory was watched
+                    changed.addAll(checkDirectory(Paths.get(path).toAbsolutePath().getParent()));
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Unable to watch {}", path, e);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    /**
+     * The identity of the content of a file, following any symlinks.
+     */
+    private static final class FileState {
+        private static final FileState MISSING = new FileState(null, 0, -1);
+
+        private final String realPath;
+        private final long lastModified;
+        private final long size;
+
+        private FileState(String realPath, long lastModified, long size) {
+            this.realPath = realPath;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        static FileState of(String path) {
+            try {
+                Path realPath = Paths.get(path).toRealPath();
+                BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+                return new FileState(realPath.toString(), attributes.lastModifiedTime().toMillis(), attributes.size());
+            } catch (IOException e) {
+                return MISSING;
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof FileState)) {
+                return false;
+            }
+            FileState state = (FileState) other;
+            return lastModified == state.lastModified && size == state.size
+                    && (realPath == null ? state.realPath == null : realPath.equals(state.realPath));
+        }
+
+        @Override
+        public int hashCode() {
+            return (realPath == null ? 0 : realPath.hashCode()) * 31 + (int) lastModified;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ibm.cloud.spring.env;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+
+import java.io.IOException;
+
+/**
+ * Shared JSON parsing and json path evaluation over Jackson trees.
+ *
+ * Jackson and Jayway JsonPath are only referenced from here and the classes which hold
+ * parsed JSON, so neither is loaded until the mappings file is parsed or a search pattern
+ * reads JSON. Mappings compiled at build time which only use plain env: and file: patterns
+ * never load them.
+ */
+final class CloudServicesJson {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private CloudServicesJson() {
+    }
+
+    /**
+     * Holds the JsonPath configuration, so that JsonPath is only initialized by the first
+     * json path which is not evaluated by {@link JsonQuery} itself.
+     */
+    private static final class JsonPathHolder {
+        static final Configuration JSON_NODE_CONFIGURATION = Configuration.builder()
+                .jsonProvider(new JacksonJsonNodeJsonProvider(MAPPER))
+                .mappingProvider(new JacksonMappingProvider(MAPPER))
+                .options(Option.SUPPRESS_EXCEPTIONS)
+                .build();
+    }
+
+    /**
+     * Parse a JSON string into a tree.
+     *
+     * @param json The JSON string
+     * @return The parsed tree
+     * @throws IOException if the string is not valid JSON
+     */
+    static JsonNode parse(String json) throws IOException {
+        return MAPPER.readTree(json);
+    }
+
+    /**
+     * @return The empty document used when JSON could not be read
+     */
+    static JsonNode missing() {
+        return MissingNode.getInstance();
+    }
+
+    /**
+     * Read a value from a JSON tree.
+     *
+     * @param node The tree to read from
+     * @param jsonPath The json path of the value
+     * @return The value as text, or null if there is no data at the path
+     */
+    static String read(JsonNode node, JsonPath jsonPath) {
+        if (node == null || node.isMissingNode()) {
+            return null;
+        }
+        Object value = jsonPath.read(node, JsonPathHolder.JSON_NODE_CONFIGURATION);
+        if (value instanceof JsonNode) {
+            JsonNode result = (JsonNode) value;
+            if (result.isNull() || result.isMissingNode()) {
+                return null;
+            }
+            return result.isValueNode() ? result.asText() : result.toString();
+        }
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,30 @@
+package com.ibm.cloud.spring.env;
+
+/**
+ * The search patterns of every mapped property name. This is implemented by the
+ * mappings read from the mappings.json file at startup, and by the class generated from
+ * it at build time by {@link CloudServicesMappingsGenerator}.
+ */
+public interface CloudServicesMappings {
+
+    /**
+     * @return The classpath location of the mappings file these mappings were read from
+     */
+    String getLocation();
+
+    /**
+     * @return The version of the mappings file, which affects how file patterns are resolved
+     */
+    int getVersion();
+
+    /**
+     * @return Every mapped property name, in the order they appear in the mappings file
+     */
+    String[] getNames();
+
+    /**
+     * @param name The property name
+     * @return The search patterns for the name in the order they are tried, or null if the name is not mapped
+     */
+    String[] getSearchPatterns(String name);
+}
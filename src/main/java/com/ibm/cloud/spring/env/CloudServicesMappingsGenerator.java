@@ -0,0 +1,136 @@
+package com.ibm.cloud.spring.env;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Generates the Java source of a {@link CloudServicesMappings} class from a mappings.json
+ * file, so that applications can resolve values without reading and parsing the mappings
+ * file at startup. Every search pattern using a built in protocol is validated, so an
+ * invalid mappings file fails the build rather than being ignored at runtime.
+ */
+public final class CloudServicesMappingsGenerator {
+
+    /**
+     * The class the generated mappings are loaded from, unless set with "ibm.cloud.spring.bind.mappings.class".
+     */
+    public static final String DEFAULT_CLASS_NAME = "com.ibm.cloud.spring.env.generated.CompiledCloudServicesMappings";
+
+    private CloudServicesMappingsGenerator() {
+    }
+
+    /**
+     * Generate the source of a mappings class.
+     *
+     * @param location The classpath location the mappings file is packaged at e.g. "/mappings.json"
+     * @param mappings The contents of the mappings file
+     * @param className The fully qualified name of the class to generate
+     * @return The Java source of the class
+     * @throws IOException if the mappings cannot be read or are not valid JSON
+     * @throws IllegalArgumentException if any of the search patterns are invalid
+     */
+    public static String generate(String location, InputStream mappings, String className) throws IOException {
+        JsonNode json = CloudServicesJson.MAPPER.readTree(mappings);
+        if (json == null || !json.isObject()) {
+            throw new IOException("Mappings file " + location + " does not contain a JSON object");
+        }
+        return generate(new JsonMappings(location, json), className);
+    }
+
+    static String generate(CloudServicesMappings mappings, String className) {
+        String[] names = mappings.getNames();
+        for (String name : names) {
+            for (String pattern : mappings.getSearchPatterns(name)) {
+                String protocol = SearchPattern.parseOnfirst(pattern, ":")[0];
+                if (!protocol.isEmpty() && !SearchPattern.isBuiltIn(protocol)) {
+                    continue;       //handled by a ServiceValueResolver, which is only known at runtime
+                }
+                try {
+                    SearchPattern.compile(pattern, mappings.getVersion());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid search pattern for " + name + " : " + e.getMessage(), e);
+                }
+            }
+        }
+        int i = className.lastIndexOf('.');
+        StringBuilder source = new StringBuilder();
+        if (i > 0) {
+            source.append("package ").append(className, 0, i).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * Generated from ").append(mappings.getLocation()).append(", do not edit.\n")
+                .append(" */\n")
+                .append("public final class ").append(className.substring(i + 1))
+                .append(" implements ").append(CloudServicesMappings.class.getName()).append(" {\n\n")
+                .append("    private static final String[] NAMES = ");
+        appendArray(source, names);
+        source.append(";\n\n")
+                .append("    @Override\n")
+                .append("    public String getLocation() {\n")
+                .append("        return ").append(quote(mappings.getLocation())).append(";\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public int getVersion() {\n")
+                .append("        return ").append(mappings.getVersion()).append(";\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public String[] getNames() {\n")
+                .append("        return NAMES.clone();\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public String[] getSearchPatterns(String name) {\n")
+                .append("        switch (name) {\n");
+        for (String name : names) {
+            source.append("            case ").append(quote(name)).append(":\n")
+                    .append("                return ");
+            appendArray(source, mappings.getSearchPatterns(name));
+            source.append(";\n");
+        }
+        source.append("            default:\n")
+                .append("                return null;\n")
+                .append("        }\n")
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private static void appendArray(StringBuilder source, String[] values) {
+        source.append("new String[] {");
+        for (int i = 0; i < values.length; i++) {
+            source.append(i == 0 ? "" : ", ").append(quote(values[i]));
+        }
+        source.append("}");
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
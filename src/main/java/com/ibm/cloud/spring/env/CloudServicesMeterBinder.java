@@ -0,0 +1,74 @@
+package com.ibm.cloud.spring.env;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@link CloudServicesStats} of a CloudServicesConfigMap to a Micrometer
+ * MeterRegistry. The meters read the statistics when they are published, so binding
+ * adds nothing to the cost of a lookup.
+ */
+public class CloudServicesMeterBinder implements MeterBinder {
+
+    private final CloudServicesStats stats;
+
+    /**
+     * @param configMap The config map to publish, statistics must be enabled for anything to be published
+     */
+    public CloudServicesMeterBinder(CloudServicesConfigMap configMap) {
+        this.stats = configMap == null ? null : configMap.getStats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (stats == null) {
+            return;
+        }
+        FunctionCounter.builder("cloud.services.lookups", stats, CloudServicesStats::getHits)
+                .tag("result", "hit").description("Lookups of mapped names which resolved to a value").register(registry);
+        FunctionCounter.builder("cloud.services.lookups", stats, CloudServicesStats::getMisses)
+                .tag("result", "miss").description("Lookups of mapped names which did not resolve to a value").register(registry);
+        FunctionCounter.builder("cloud.services.lookups", stats, CloudServicesStats::getUnmapped)
+                .tag("result", "unmapped").description("Lookups of names which are not in the mappings").register(registry);
+        FunctionCounter.builder("cloud.services.file.reads", stats, CloudServicesStats::getFileReads)
+                .description("Files and classpath resources read").register(registry);
+        FunctionCounter.builder("cloud.services.json.parses", stats, CloudServicesStats::getJsonParses)
+                .description("JSON documents parsed").register(registry);
+        for (final CloudServicesStats.ProtocolStats protocol : stats.getProtocols()) {
+            FunctionTimer.builder("cloud.services.resolution", protocol,
+                    CloudServicesStats.ProtocolStats::getCount,
+                    CloudServicesStats.ProtocolStats::getTotalNanos, TimeUnit.NANOSECONDS)
+                    .tag("protocol", protocol.getProtocol())
+                    .description("Time taken to resolve search patterns").register(registry);
+            Gauge.builder("cloud.services.resolution.max", protocol, p -> p.getMaxNanos() / 1e6)
+                    .tag("protocol", protocol.getProtocol()).baseUnit("milliseconds")
+                    .description("Longest time taken to resolve a search pattern").register(registry);
+            for (int i = 0; i < CloudServicesStats.LATENCY_BUCKETS; i++) {
+                final int bucket = i;
+                // cumulative, as a Prometheus histogram, with the upper bound of the bucket in seconds
+                String le = i == CloudServicesStats.LATENCY_BUCKETS - 1 ? "+Inf" : Double.toString((1L << i) / 1e6);
+                FunctionCounter.builder("cloud.services.resolution.latency", protocol, p -> p.getLatencyCount(bucket))
+                        .tag("protocol", protocol.getProtocol()).tag("le", le)
+                        .description("Search patterns resolved in the time of the bucket or less").register(registry);
+            }
+            for (int i = 0; i < CloudServicesStats.POSITIONS; i++) {
+                final int position = i;
+                FunctionCounter.builder("cloud.services.resolution.hits", protocol, p -> p.getHits(position))
+                        .tag("protocol", protocol.getProtocol()).tag("position", Integer.toString(position))
+                        .description("Values found by a search pattern, by protocol and position in the search patterns")
+                        .register(registry);
+            }
+        }
+        for (final CloudServicesStats.CacheStats cache : stats.getCaches().values()) {
+            FunctionCounter.builder("cloud.services.cache", cache, CloudServicesStats.CacheStats::getHits)
+                    .tag("cache", cache.getName()).tag("result", "hit").register(registry);
+            FunctionCounter.builder("cloud.services.cache", cache, CloudServicesStats.CacheStats::getMisses)
+                    .tag("cache", cache.getName()).tag("result", "miss").register(registry);
+        }
+    }
+}
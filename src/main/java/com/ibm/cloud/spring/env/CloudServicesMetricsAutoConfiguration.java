@@ -0,0 +1,46 @@
+package com.ibm.cloud.spring.env;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Registers a {@link CloudServicesMeterBinder} when Micrometer is on the classpath and
+ * the config map is collecting statistics, so the resolution statistics are published
+ * to the application's MeterRegistry.
+ */
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@Conditional(CloudServicesMetricsAutoConfiguration.StatsCollectedCondition.class)
+public class CloudServicesMetricsAutoConfiguration {
+
+    @Bean
+    public CloudServicesMeterBinder cloudServicesMeterBinder(Environment environment) {
+        return new CloudServicesMeterBinder(CloudServicesConfigMap.from(environment));
+    }
+
+    /**
+     * Matches when the config map collects statistics. The settings are read when the
+     * environment is post processed, before application.properties is loaded, so the
+     * metrics property in the final environment may not be what the config map used.
+     */
+    static class StatsCollectedCondition extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            CloudServicesConfigMap configMap = CloudServicesConfigMap.from(context.getEnvironment());
+            if (configMap == null) {
+                return ConditionOutcome.noMatch("No cloud services config map in the environment");
+            }
+            return configMap.getStats() != null ? ConditionOutcome.match("Cloud services statistics are collected")
+                    : ConditionOutcome.noMatch("Cloud services statistics are not collected");
+        }
+    }
+}
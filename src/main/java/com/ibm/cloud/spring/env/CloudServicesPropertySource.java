@@ -1,44 +1,35 @@
 package com.ibm.cloud.spring.env;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.EnumerablePropertySource;
 
-class CloudServicesPropertySource extends PropertySource<Object> {
-    private static final Logger LOGGER  = LoggerFactory.getLogger(CloudServicesConfigMap.class);
-    
-    private CloudServicesConfigMap configMap;
-    
-    public CloudServicesPropertySource() {
-        super("CloudServicesConfigMap");
-        init();
-    }
-    
-    public CloudServicesPropertySource(String name) {
-        super(name);
-        init();
+/**
+ * Property source resolving the mapped names on each lookup. The mapped names are
+ * enumerable, so binding to a prefix reads only the names under it rather than
+ * probing every relaxed variant of every field.
+ */
+class CloudServicesPropertySource extends EnumerablePropertySource<CloudServicesConfigMap> {
+
+    public CloudServicesPropertySource(String name, CloudServicesConfigMap configMap) {
+        super(name, configMap);
     }
 
-    public CloudServicesPropertySource(String name, String source) {
-        super(name, source);
-        init();
+    CloudServicesConfigMap getConfigMap() {
+        return getSource();
     }
 
-    private void init() {
-        try {
-            configMap = CloudServicesConfigMap.getInstance();
-        } catch (CloudServicesException e) {
-            LOGGER.warn("Error reading configMap file", e);
-            configMap = null;
-        }
+    @Override
+    public String[] getPropertyNames() {
+        return getSource().getNames();
     }
-    
+
     @Override
     public Object getProperty(String name) {
-        if(configMap != null) {
-            return configMap.getValue(name);
-        }
-        return null;
+        return getSource().getValue(name);
     }
-}
 
+    @Override
+    public boolean containsProperty(String name) {
+        CloudServicesConfigMap configMap = getSource();
+        return configMap.isMapped(name) && configMap.getValue(name) != null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ibm.cloud.spring.env;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a mapped name was resolved: which search pattern found the value, and how long
+ * it took. Nothing derived from the value is exposed except its length, since even a
+ * hash of a short secret can be reversed by trying every candidate.
+ */
+public final class CloudServicesResolution {
+
+    private final String name;
+    private final String pattern;
+    private final int index;
+    private final String protocol;
+    private final long nanos;
+    private final int length;
+
+    CloudServicesResolution(String name, String pattern, int index, String protocol, long nanos, String value) {
+        this.name = name;
+        this.pattern = pattern;
+        this.index = index;
+        this.protocol = protocol;
+        this.nanos = nanos;
+        this.length = value == null ? -1 : value.length();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The search pattern which found the value, or null if no pattern did
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return The position of the pattern in the search patterns of the name, or -1 if no pattern found a value
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The protocol of the pattern which found the value, or null if no pattern did
+     */
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * @return The time taken to try the patterns, in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return The number of characters in the value, or -1 if it was not found
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isResolved() {
+        return pattern != null;
+    }
+
+    @Override
+    public String toString() {
+        double millis = nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        if (!isResolved()) {
+            return String.format("%s not found (%.3f ms)", name, millis);
+        }
+        return String.format("%s found from %s [#%d %s], %d characters (%.3f ms)", name, pattern, index, protocol, length, millis);
+    }
+}
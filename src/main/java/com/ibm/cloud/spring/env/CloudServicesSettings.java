@@ -0,0 +1,239 @@
+package com.ibm.cloud.spring.env;
+
+import org.springframework.core.env.PropertyResolver;
+
+import java.util.Base64;
+
+/**
+ * The "ibm.cloud.spring.bind.*" settings of an environment, read once when the
+ * environment is post processed.
+ */
+final class CloudServicesSettings {
+
+    static final String PROPERTY_PREFIX = "ibm.cloud.spring.bind.";
+    static final String MAPPINGS = PROPERTY_PREFIX + "mappings";
+    static final String MAPPINGS_CLASS = PROPERTY_PREFIX + "mappings.class";
+    static final String MAPPINGS_ADDITIONAL = PROPERTY_PREFIX + "mappings.additional";
+    static final String CACHE_ENABLED = PROPERTY_PREFIX + "cache.enabled";
+    static final String CACHE_TTL = PROPERTY_PREFIX + "cache.ttl";
+    static final String FILE_CACHE_SIZE = PROPERTY_PREFIX + "file.cache.size";
+    static final String FILE_CACHE_NEGATIVE_TTL = PROPERTY_PREFIX + "file.cache.negative.ttl";
+    static final String FILE_CACHE_REFRESH = PROPERTY_PREFIX + "file.cache.refresh";
+    static final String EAGER_ENABLED = PROPERTY_PREFIX + "eager.enabled";
+    static final String EAGER_THREADS = PROPERTY_PREFIX + "eager.threads";
+    static final String WATCH_ENABLED = PROPERTY_PREFIX + "watch.enabled";
+    static final String METRICS_ENABLED = PROPERTY_PREFIX + "metrics.enabled";
+    static final String VCAP_STREAMING_ENABLED = PROPERTY_PREFIX + "vcap.streaming.enabled";
+    static final String RESOLVER_THREADS = PROPERTY_PREFIX + "resolver.threads";
+    static final String RESOLVER_TIMEOUT = PROPERTY_PREFIX + "resolver.timeout";
+    static final String ASYNC_THREADS = PROPERTY_PREFIX + "async.threads";
+    static final String SNAPSHOT_FILE = PROPERTY_PREFIX + "snapshot.file";
+    static final String SNAPSHOT_KEY = PROPERTY_PREFIX + "snapshot.key";
+    static final int SNAPSHOT_KEY_LENGTH = 32;
+    static final String DIAGNOSTICS_REPORT_ENABLED = PROPERTY_PREFIX + "diagnostics.report.enabled";
+
+    static final String DEFAULT_MAPPINGS = "/mappings.json";
+
+    private final String mappings;
+    private final String mappingsClass;
+    private final String[] additionalMappings;
+    private final boolean cacheEnabled;
+    private final long cacheTtl;
+    private final int fileCacheSize;
+    private final long fileCacheNegativeTtl;
+    private final long fileCacheRefresh;
+    private final boolean eagerEnabled;
+    private final int eagerThreads;
+    private final boolean watchEnabled;
+    private final boolean metricsEnabled;
+    private final boolean vcapStreamingEnabled;
+    private final int resolverThreads;
+    private final long resolverTimeout;
+    private final int asyncThreads;
+    private final boolean diagnosticsReportEnabled;
+    private final String snapshotFile;
+    private final byte[] snapshotKey;
+
+    CloudServicesSettings(PropertyResolver environment) {
+        mappings = environment.getProperty(MAPPINGS, DEFAULT_MAPPINGS);
+        mappingsClass = environment.getProperty(MAPPINGS_CLASS, CloudServicesMappingsGenerator.DEFAULT_CLASS_NAME);
+        additionalMappings = environment.getProperty(MAPPINGS_ADDITIONAL, String[].class, new String[0]);
+        cacheEnabled = environment.getProperty(CACHE_ENABLED, Boolean.class, false);
+        cacheTtl = environment.getProperty(CACHE_TTL, Long.class, 0L);
+        if (cacheTtl < 0) {
+            throw new CloudServicesException("Invalid " + CACHE_TTL + " [" + cacheTtl + "], cannot be negative");
+        }
+        fileCacheSize = environment.getProperty(FILE_CACHE_SIZE, Integer.class, 256);
+        if (fileCacheSize < 1) {
+            throw new CloudServicesException("Invalid " + FILE_CACHE_SIZE + " [" + fileCacheSize + "], must be at least 1");
+        }
+        fileCacheNegativeTtl = environment.getProperty(FILE_CACHE_NEGATIVE_TTL, Long.class, 5000L);
+        if (fileCacheNegativeTtl < 0) {
+            throw new CloudServicesException("Invalid " + FILE_CACHE_NEGATIVE_TTL + " [" + fileCacheNegativeTtl + "], cannot be negative");
+        }
+        fileCacheRefresh = environment.getProperty(FILE_CACHE_REFRESH, Long.class, 0L);
+        if (fileCacheRefresh < 0) {
+            throw new CloudServicesException("Invalid " + FILE_CACHE_REFRESH + " [" + fileCacheRefresh + "], cannot be negative");
+        }
+        eagerEnabled = environment.getProperty(EAGER_ENABLED, Boolean.class, false);
+        eagerThreads = environment.getProperty(EAGER_THREADS, Integer.class, Runtime.getRuntime().availableProcessors());
+        watchEnabled = environment.getProperty(WATCH_ENABLED, Boolean.class, false);
+        metricsEnabled = environment.getProperty(METRICS_ENABLED, Boolean.class, false);
+        vcapStreamingEnabled = environment.getProperty(VCAP_STREAMING_ENABLED, Boolean.class, true);
+        resolverThreads = environment.getProperty(RESOLVER_THREADS, Integer.class, Runtime.getRuntime().availableProcessors());
+        if (resolverThreads < 1) {
+            throw new CloudServicesException("Invalid " + RESOLVER_THREADS + " [" + resolverThreads + "], must be at least 1");
+        }
+        resolverTimeout = environment.getProperty(RESOLVER_TIMEOUT, Long.class, 5000L);
+        if (resolverTimeout < 1) {
+            throw new CloudServicesException("Invalid " + RESOLVER_TIMEOUT + " [" + resolverTimeout + "], must be at least 1");
+        }
+        asyncThreads = environment.getProperty(ASYNC_THREADS, Integer.class, Runtime.getRuntime().availableProcessors());
+        if (asyncThreads < 1) {
+            throw new CloudServicesException("Invalid " + ASYNC_THREADS + " [" + asyncThreads + "], must be at least 1");
+        }
+        diagnosticsReportEnabled = environment.getProperty(DIAGNOSTICS_REPORT_ENABLED, Boolean.class, false);
+        snapshotFile = environment.getProperty(SNAPSHOT_FILE);
+        String key = environment.getProperty(SNAPSHOT_KEY);
+        if (snapshotFile != null && (key == null || key.isEmpty())) {
+            throw new CloudServicesException(SNAPSHOT_FILE + " requires " + SNAPSHOT_KEY + " to be set");
+        }
+        snapshotKey = key == null ? null : decodeSnapshotKey(key);
+    }
+
+    /**
+     * @return The classpath location of the mappings file
+     */
+    String getMappings() {
+        return mappings;
+    }
+
+    /**
+     * @return The name of the class generated from the mappings file at build time
+     */
+    String getMappingsClass() {
+        return mappingsClass;
+    }
+
+    /**
+     * @return The locations of mappings files which override the mappings on the classpath, in increasing precedence
+     */
+    String[] getAdditionalMappings() {
+        return additionalMappings;
+    }
+
+    boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * @return The time in milliseconds a cached value is used before it is resolved again, 0 for no expiry
+     */
+    long getCacheTtl() {
+        return cacheTtl;
+    }
+
+    /**
+     * @return The maximum number of files and classpath resources kept in memory
+     */
+    int getFileCacheSize() {
+        return fileCacheSize;
+    }
+
+    /**
+     * @return The time in milliseconds a file which could not be read is remembered before it is tried again
+     */
+    long getFileCacheNegativeTtl() {
+        return fileCacheNegativeTtl;
+    }
+
+    /**
+     * @return The age in milliseconds after which a file is read again in the background, 0 to keep it until refreshed
+     */
+    long getFileCacheRefresh() {
+        return fileCacheRefresh;
+    }
+
+    /**
+     * @return true to resolve every mapped value at startup, which is implied by a snapshot file
+     */
+    boolean isEagerEnabled() {
+        return eagerEnabled || snapshotFile != null;
+    }
+
+    int getEagerThreads() {
+        return eagerThreads;
+    }
+
+    boolean isWatchEnabled() {
+        return watchEnabled;
+    }
+
+    boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * @return true to parse only the parts of VCAP_SERVICES referenced by the mappings
+     */
+    boolean isVcapStreamingEnabled() {
+        return vcapStreamingEnabled;
+    }
+
+    /**
+     * @return The maximum number of speculative lookups by asynchronous resolvers running at the same time
+     */
+    int getResolverThreads() {
+        return resolverThreads;
+    }
+
+    /**
+     * @return The time in milliseconds to wait for a speculative lookup before trying the next search pattern
+     */
+    long getResolverTimeout() {
+        return resolverTimeout;
+    }
+
+    /**
+     * @return The maximum number of values resolved at the same time for the asynchronous API
+     */
+    int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    /**
+     * @return true to log how every mapped name resolves once the application context has started
+     */
+    boolean isDiagnosticsReportEnabled() {
+        return diagnosticsReportEnabled;
+    }
+
+    /**
+     * @return The file the resolved values are saved to and restored from, or null to not use a snapshot
+     */
+    String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * @return The secret the snapshot is encrypted with, at least {@link #SNAPSHOT_KEY_LENGTH} bytes
+     */
+    byte[] getSnapshotKey() {
+        return snapshotKey;
+    }
+
+    private static byte[] decodeSnapshotKey(String key) {
+        byte[] decoded;
+        try {
+            decoded = Base64.getDecoder().decode(key.trim());
+        } catch (IllegalArgumentException e) {
+            decoded = new byte[0];
+        }
+        if (decoded.length < SNAPSHOT_KEY_LENGTH) {
+            // the key itself is never included in the message
+            throw new CloudServicesException("Invalid " + SNAPSHOT_KEY + ", must be at least " + SNAPSHOT_KEY_LENGTH
+                    + " random bytes, base64 encoded");
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,248 @@
+package com.ibm.cloud.spring.env;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An encrypted file holding the values resolved by a previous start, so that a restart with
+ * the same mappings and sources can use them without reading or parsing the sources.
+ *
+ * The file holds a fingerprint of the mappings and the state of every source they read,
+ * followed by the AES-GCM encrypted values. The fingerprint is an HMAC, so it reveals
+ * nothing about the values of environment variables, and it is authenticated as part
+ * of the encrypted data.
+ *
+ * The configured secret is random, rather than a password, so the encryption and fingerprint
+ * keys are derived from it with HKDF (RFC 5869): extracted with the random salt in the file
+ * header, then expanded separately with their own labels.
+ */
+final class CloudServicesSnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CloudServicesSnapshot.class);
+    private static final byte[] MAGIC = {'C', 'S', 'S', 'N'};
+    private static final byte VERSION = 3;
+    private static final int SALT_LENGTH = 16;
+    private static final int FINGERPRINT_LENGTH = 32;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + SALT_LENGTH + FINGERPRINT_LENGTH + IV_LENGTH;
+
+    private final Path file;
+    private final byte[] salt;
+    private final SecretKeySpec cipherKey;
+    private final SecretKeySpec macKey;
+
+    /**
+     * @param file The snapshot file
+     * @param key The random secret the encryption and fingerprint keys are derived from
+     */
+    CloudServicesSnapshot(Path file, byte[] key) {
+        this.file = file;
+        this.salt = readSalt(file);
+        try {
+            byte[] master = hmac(salt, key);    //HKDF-Extract
+            this.cipherKey = new SecretKeySpec(expand(master, "cloud-services-snapshot cipher"), 0, 16, "AES");
+            this.macKey = new SecretKeySpec(expand(master, "cloud-services-snapshot mac"), "HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);     //every Java platform supports HmacSHA256
+        }
+    }
+
+    /**
+     * Get the salt of the existing snapshot, so that its fingerprint can be matched, or a new
+     * random salt if there is no snapshot written by this version.
+     */
+    private static byte[] readSalt(Path file) {
+        byte[] start = new byte[MAGIC.length + 1 + SALT_LENGTH];
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            in.readFully(start);
+            if (Arrays.equals(Arrays.copyOfRange(start, 0, MAGIC.length), MAGIC) && start[MAGIC.length] == VERSION) {
+                return Arrays.copyOfRange(start, MAGIC.length + 1, start.length);
+            }
+        } catch (NoSuchFileException | EOFException e) {
+            // no snapshot yet, or not one written by this version
+        } catch (IOException e) {
+            LOGGER.debug("Unable to read the salt of snapshot {}", file, e);
+        }
+        byte[] salt = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Derive a key for one use from the master key, as the single block HKDF-Expand of RFC 5869.
+     */
+    private static byte[] expand(byte[] master, String label) throws GeneralSecurityException {
+        byte[] info = label.getBytes(StandardCharsets.UTF_8);
+        byte[] input = Arrays.copyOf(info, info.length + 1);
+        input[info.length] = 1;
+        return hmac(master, input);
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data);
+    }
+
+    /**
+     * Fingerprint the mappings and the current state of the sources they read.
+     *
+     * @param configMap The config map the values are resolved by
+     * @return The fingerprint, or null if the values cannot be snapshot because a source cannot be checked for changes
+     */
+    byte[] fingerprint(CloudServicesConfigMap configMap) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(macKey);
+            mac.update(VERSION);
+            return configMap.fingerprint(mac) ? mac.doFinal() : null;
+        } catch (GeneralSecurityException e) {
+            LOGGER.warn("Unable to fingerprint the sources for the snapshot {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Read the values from the snapshot file.
+     *
+     * @param fingerprint The fingerprint of the current mappings and sources
+     * @return The values, or null if there is no snapshot for the fingerprint
+     */
+    Map<String, String> read(byte[] fingerprint) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] header = new byte[HEADER_LENGTH];
+            buffer.get(header);
+            if (!Arrays.equals(Arrays.copyOfRange(header, 0, MAGIC.length), MAGIC) || header[MAGIC.length] != VERSION) {
+                LOGGER.info("Ignoring snapshot {}, it was written by a different version", file);
+                return null;
+            }
+            int offset = MAGIC.length + 1;
+            if (!MessageDigest.isEqual(Arrays.copyOfRange(header, offset, offset + SALT_LENGTH), salt)) {
+                LOGGER.debug("Ignoring snapshot {}, it has been replaced", file);
+                return null;
+            }
+            offset += SALT_LENGTH;
+            byte[] stored = Arrays.copyOfRange(header, offset, offset + FINGERPRINT_LENGTH);
+            if (!MessageDigest.isEqual(stored, fingerprint)) {
+                LOGGER.debug("Ignoring snapshot {}, the mappings or sources have changed", file);
+                return null;
+            }
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, cipherKey, new GCMParameterSpec(TAG_BITS, header, HEADER_LENGTH - IV_LENGTH, IV_LENGTH));
+            cipher.updateAAD(fingerprint);
+            ByteBuffer plain = ByteBuffer.allocate(cipher.getOutputSize(buffer.remaining()));
+            cipher.doFinal(buffer, plain);
+            plain.flip();
+            return decode(plain);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            LOGGER.warn("Ignoring snapshot {}, it cannot be read", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Replace the snapshot file with the given values.
+     *
+     * @param fingerprint The fingerprint of the mappings and sources the values were resolved from
+     * @param values The resolved values
+     */
+    void write(byte[] fingerprint, Map<String, String> values) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            new SecureRandom().nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, cipherKey, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(fingerprint);
+            byte[] encrypted = cipher.doFinal(encode(values));
+
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try {
+                    Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+                } catch (UnsupportedOperationException e) {
+                    // not a POSIX file system, rely on the permissions of the directory
+                }
+                ByteBuffer contents = ByteBuffer.allocate(HEADER_LENGTH + encrypted.length);
+                contents.put(MAGIC).put(VERSION).put(salt).put(fingerprint).put(iv).put(encrypted).flip();
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    while (contents.hasRemaining()) {
+                        channel.write(contents);
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            LOGGER.warn("Unable to write snapshot {}", file, e);
+        }
+    }
+
+    private static byte[] encode(Map<String, String> values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(values.size());
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Map<String, String> decode(ByteBuffer plain) {
+        int count = plain.getInt();
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            values.put(readString(plain), readString(plain));
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    private static String readString(ByteBuffer plain) {
+        byte[] bytes = new byte[plain.getInt()];
+        plain.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,36 @@
+package com.ibm.cloud.spring.env;
+
+import org.springframework.core.env.EnumerablePropertySource;
+
+import java.util.Map;
+
+/**
+ * Immutable property source holding every mapped value that was resolved when
+ * the environment was post processed.
+ */
+class CloudServicesSnapshotPropertySource extends EnumerablePropertySource<CloudServicesConfigMap> {
+
+    private final Map<String, String> values;
+    private final String[] names;
+
+    CloudServicesSnapshotPropertySource(String name, CloudServicesConfigMap configMap, Map<String, String> values) {
+        super(name, configMap);
+        this.values = values;
+        this.names = values.keySet().toArray(new String[values.size()]);
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return names.clone();
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return values.get(name);
+    }
+
+    @Override
+    public boolean containsProperty(String name) {
+        return values.containsKey(name);
+    }
+}
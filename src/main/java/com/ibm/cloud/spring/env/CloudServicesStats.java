@@ -0,0 +1,282 @@
+package com.ibm.cloud.spring.env;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolution statistics for a CloudServicesConfigMap. Statistics are only collected
+ * when enabled with the "ibm.cloud.spring.bind.metrics.enabled" property, and are
+ * published to Micrometer by {@link CloudServicesMeterBinder} when it is available.
+ */
+public final class CloudServicesStats {
+
+    /**
+     * The number of latency histogram buckets. Bucket i counts resolutions which took
+     * less than 2^i microseconds, and the last bucket counts everything slower.
+     */
+    public static final int LATENCY_BUCKETS = 16;
+
+    /**
+     * The number of search pattern positions counted separately, hits at later positions
+     * are counted in the last position.
+     */
+    public static final int POSITIONS = 8;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder unmapped = new LongAdder();
+    private final ConcurrentMap<String, ProtocolStats> protocols = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CacheStats> caches = new ConcurrentHashMap<>();
+    private final LongAdder fileReads = new LongAdder();
+    private final LongAdder jsonParses = new LongAdder();
+
+    CloudServicesStats(Collection<String> protocols) {
+        for (String protocol : protocols) {
+            this.protocols.put(protocol, new ProtocolStats(protocol));
+        }
+        for (String cache : new String[] {"resolved", "file", "text", "env"}) {
+            this.caches.put(cache, new CacheStats(cache));
+        }
+    }
+
+    // Recording
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordUnmapped() {
+        unmapped.increment();
+    }
+
+    void recordResolution(String protocol, int position, long nanos, boolean hit) {
+        ProtocolStats stats = protocols.get(protocol);
+        if (stats == null) {
+            stats = protocols.computeIfAbsent(protocol, ProtocolStats::new);
+        }
+        stats.record(position, nanos, hit);
+    }
+
+    void recordCacheHit(String cache) {
+        caches.get(cache).hits.increment();
+    }
+
+    void recordCacheMiss(String cache) {
+        caches.get(cache).misses.increment();
+    }
+
+    void recordFileRead() {
+        fileReads.increment();
+    }
+
+    void recordJsonParse() {
+        jsonParses.increment();
+    }
+
+    // Reporting
+
+    /**
+     * @return The number of lookups of mapped names which resolved to a value
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups of mapped names which did not resolve to a value
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of lookups of names which are not in the mappings
+     */
+    public long getUnmapped() {
+        return unmapped.sum();
+    }
+
+    /**
+     * @return The number of files and classpath resources read
+     */
+    public long getFileReads() {
+        return fileReads.sum();
+    }
+
+    /**
+     * @return The number of JSON documents parsed
+     */
+    public long getJsonParses() {
+        return jsonParses.sum();
+    }
+
+    /**
+     * @return The statistics for each search pattern protocol
+     */
+    public Collection<ProtocolStats> getProtocols() {
+        return Collections.unmodifiableCollection(protocols.values());
+    }
+
+    /**
+     * @param protocol The search pattern protocol e.g. "env"
+     * @return The statistics for the protocol, or null if it has not been used
+     */
+    public ProtocolStats getProtocol(String protocol) {
+        return protocols.get(protocol);
+    }
+
+    /**
+     * @return The statistics for each cache, by cache name
+     */
+    public Map<String, CacheStats> getCaches() {
+        return Collections.unmodifiableMap(caches);
+    }
+
+    /**
+     * Statistics for the search patterns of one protocol.
+     */
+    public static final class ProtocolStats {
+        private final String protocol;
+        private final LongAdder[] hitsByPosition = newAdders(POSITIONS);
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] latency = newAdders(LATENCY_BUCKETS);
+
+        ProtocolStats(String protocol) {
+            this.protocol = protocol;
+        }
+
+        void record(int position, long nanos, boolean hit) {
+            if (hit) {
+                hitsByPosition[Math.min(position, POSITIONS - 1)].increment();
+            } else {
+                misses.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            long micros = nanos / 1000;
+            int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            latency[Math.min(bucket, LATENCY_BUCKETS - 1)].increment();
+        }
+
+        public String getProtocol() {
+            return protocol;
+        }
+
+        /**
+         * @return The number of values found by patterns of this protocol
+         */
+        public long getHits() {
+            long sum = 0;
+            for (LongAdder adder : hitsByPosition) {
+                sum += adder.sum();
+            }
+            return sum;
+        }
+
+        /**
+         * @param position The zero based position of the pattern in the search patterns
+         * @return The number of values found by patterns of this protocol at the position
+         */
+        public long getHits(int position) {
+            return hitsByPosition[Math.min(position, POSITIONS - 1)].sum();
+        }
+
+        /**
+         * @return The number of patterns of this protocol which did not find a value
+         */
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        /**
+         * @return The number of patterns of this protocol which were resolved
+         */
+        public long getCount() {
+            return getHits() + getMisses();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @param bucket The latency histogram bucket, see {@link #LATENCY_BUCKETS}
+         * @return The number of patterns of this protocol resolved in the time of the bucket or less
+         */
+        public long getLatencyCount(int bucket) {
+            long sum = 0;
+            for (int i = 0; i <= bucket; i++) {
+                sum += latency[i].sum();
+            }
+            return sum;
+        }
+
+        /**
+         * @return The latency histogram, see {@link #LATENCY_BUCKETS}
+         */
+        public long[] getLatencyHistogram() {
+            long[] histogram = new long[LATENCY_BUCKETS];
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                histogram[i] = latency[i].sum();
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * Hit and miss counts for one cache.
+     */
+    public static final class CacheStats {
+        private final String name;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        CacheStats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        /**
+         * @return The fraction of lookups which were hits, or 0 if there have been no lookups
+         */
+        public double getHitRate() {
+            long hits = getHits();
+            long total = hits + getMisses();
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
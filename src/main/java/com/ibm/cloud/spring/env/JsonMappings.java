@@ -0,0 +1,86 @@
+package com.ibm.cloud.spring.env;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The mappings read from a parsed mappings.json file, supporting both the version 1
+ * layout keyed by property name and the version 2 layout keyed by service then key.
+ */
+final class JsonMappings implements CloudServicesMappings {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JsonMappings.class);
+
+    private final String location;
+    private final int version;
+    private final Map<String, String[]> searchPatterns = new LinkedHashMap<>();
+
+    JsonMappings(String location, JsonNode mappings) {
+        this.location = location;
+        int mappingsVersion = 1;
+        JsonNode versionNode = mappings.get("version");
+        if (versionNode != null && versionNode.isInt()) {
+            mappingsVersion = versionNode.intValue();
+        }
+        this.version = mappingsVersion;
+        Iterator<Map.Entry<String, JsonNode>> fields = mappings.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!field.getValue().isObject()) {
+                continue;       //not a mapping entry e.g. the version field
+            }
+            if (mappingsVersion > 1) {
+                Iterator<Map.Entry<String, JsonNode>> keys = field.getValue().fields();
+                while (keys.hasNext()) {
+                    Map.Entry<String, JsonNode> key = keys.next();
+                    String name = field.getKey() + "." + key.getKey();
+                    searchPatterns.put(name, readSearchPatterns(name, key.getValue()));
+                }
+            } else {
+                searchPatterns.put(field.getKey(), readSearchPatterns(field.getKey(), field.getValue()));
+            }
+        }
+    }
+
+    private static String[] readSearchPatterns(String name, JsonNode node) {
+        if (node.get("credentials") != null) {
+            node = node.get("credentials");
+        }
+        JsonNode array = node.get("searchPatterns");
+        if (array == null || !array.isArray()) {
+            LOGGER.warn("search patterns in mapping.json for {} is NOT an array, values will not be resolved", name);
+            return new String[0];
+        }
+        String[] patterns = new String[array.size()];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = array.get(i).asText();
+        }
+        return patterns;
+    }
+
+    @Override
+    public String getLocation() {
+        return location;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String[] getNames() {
+        return searchPatterns.keySet().toArray(new String[searchPatterns.size()]);
+    }
+
+    @Override
+    public String[] getSearchPatterns(String name) {
+        String[] patterns = searchPatterns.get(name);
+        return patterns == null ? null : patterns.clone();
+    }
+}
@@ -0,0 +1,155 @@
+package com.ibm.cloud.spring.env;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled json path from a search pattern. Paths made only of property names and
+ * array indexes, such as $['cloudantNoSQLDB'][0].credentials.url, are evaluated by
+ * walking the Jackson tree directly, which allocates nothing and does not throw when
+ * the path is missing. Any other path, such as one with wildcards, deep scans or
+ * filters, is evaluated by Jayway JsonPath.
+ */
+final class JsonQuery {
+
+    private final String path;          //normalized to bracket notation e.g. $['cloudantNoSQLDB'][0]['credentials']
+    private final String[] names;       //property name of each step, or null where the step is an array index
+    private final int[] indexes;
+    private final JsonPath jsonPath;    //null for simple paths
+
+    private JsonQuery(String path, String[] names, int[] indexes, JsonPath jsonPath) {
+        this.path = path;
+        this.names = names;
+        this.indexes = indexes;
+        this.jsonPath = jsonPath;
+    }
+
+    /**
+     * Compile a json path. As with Jayway, a path which does not start with "$" is relative to the root.
+     *
+     * @param path The json path
+     * @return The compiled path
+     * @throws IllegalArgumentException if the path is not a valid json path
+     */
+    static JsonQuery compile(String path) {
+        JsonQuery simple = compileSimple(path.startsWith("$") ? path : "$." + path);
+        if (simple != null) {
+            return simple;
+        }
+        try {
+            JsonPath jsonPath = JsonPath.compile(path);
+            return new JsonQuery(jsonPath.getPath(), null, null, jsonPath);
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid json path : " + path, e);
+        }
+    }
+
+    /**
+     * @return The compiled path, or null if the path is not only property names and array indexes
+     */
+    private static JsonQuery compileSimple(String path) {
+        List<String> names = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        StringBuilder normalized = new StringBuilder("$");
+        int i = 1;
+        while (i < path.length()) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                int end = i + 1;
+                while (end < path.length() && isNameChar(path.charAt(end))) {
+                    end++;
+                }
+                if (end == i + 1 || (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[')) {
+                    return null;        //empty name e.g. a deep scan, or a character such as a wildcard
+                }
+                names.add(path.substring(i + 1, end));
+                indexes.add(-1);
+                i = end;
+            } else if (c == '[' && i + 1 < path.length() && (path.charAt(i + 1) == '\'' || path.charAt(i + 1) == '"')) {
+                char quote = path.charAt(i + 1);
+                int end = path.indexOf(quote, i + 2);
+                if (end < 0 || end + 1 >= path.length() || path.charAt(end + 1) != ']') {
+                    return null;        //e.g. several properties ['a','b']
+                }
+                String name = path.substring(i + 2, end);
+                if (name.isEmpty() || name.indexOf('\\') >= 0 || name.indexOf('\'') >= 0 || name.indexOf('"') >= 0) {
+                    return null;
+                }
+                names.add(name);
+                indexes.add(-1);
+                i = end + 2;
+            } else if (c == '[') {
+                int end = i + 1;
+                while (end < path.length() && Character.isDigit(path.charAt(end))) {
+                    end++;
+                }
+                if (end == i + 1 || end >= path.length() || path.charAt(end) != ']' || end - i > 10) {
+                    return null;        //e.g. a wildcard, slice, negative index or filter
+                }
+                names.add(null);
+                indexes.add(Integer.parseInt(path.substring(i + 1, end)));
+                i = end + 1;
+            } else {
+                return null;
+            }
+        }
+        String[] nameArray = names.toArray(new String[names.size()]);
+        int[] indexArray = new int[indexes.size()];
+        for (int step = 0; step < indexArray.length; step++) {
+            indexArray[step] = indexes.get(step);
+            if (nameArray[step] != null) {
+                normalized.append("['").append(nameArray[step]).append("']");
+            } else {
+                normalized.append('[').append(indexArray[step]).append(']');
+            }
+        }
+        return new JsonQuery(normalized.toString(), nameArray, indexArray, null);
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    /**
+     * @return The path normalized to bracket notation e.g. $['cloudantNoSQLDB'][0]['credentials']['url']
+     */
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * @return true if the path is evaluated without Jayway JsonPath
+     */
+    boolean isSimple() {
+        return jsonPath == null;
+    }
+
+    /**
+     * Read a value from a JSON tree.
+     *
+     * @param document The tree to read from
+     * @return The value as text, or null if there is no data at the path
+     */
+    String read(JsonNode document) {
+        if (jsonPath != null) {
+            return CloudServicesJson.read(document, jsonPath);
+        }
+        JsonNode node = document;
+        for (int step = 0; step < names.length && node != null; step++) {
+            node = names[step] != null ? node.get(names[step]) : node.get(indexes[step]);
+        }
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return null;
+        }
+        return node.isValueNode() ? node.asText() : node.toString();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
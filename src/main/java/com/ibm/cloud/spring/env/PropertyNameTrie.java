@@ -0,0 +1,96 @@
+package com.ibm.cloud.spring.env;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable trie of the mapped property names, split into their "." separated
+ * segments, so that the names under a prefix can be found without scanning every name.
+ */
+final class PropertyNameTrie {
+
+    private final Node root = new Node();
+    private final String[] names;
+
+    PropertyNameTrie(Collection<String> names) {
+        for (String name : names) {
+            Node node = root;
+            int start = 0;
+            while (start <= name.length()) {
+                int end = name.indexOf('.', start);
+                if (end < 0) {
+                    end = name.length();
+                }
+                node = node.children.computeIfAbsent(name.substring(start, end), segment -> new Node());
+                start = end + 1;
+            }
+            node.name = name;
+        }
+        List<String> sorted = new ArrayList<>();
+        collect(root, sorted);
+        this.names = sorted.toArray(new String[sorted.size()]);
+    }
+
+    /**
+     * @return Every name in the trie, sorted
+     */
+    String[] getNames() {
+        return names.clone();
+    }
+
+    /**
+     * Check if there are names under a prefix.
+     *
+     * @param prefix The prefix, matched on whole segments e.g. "cloudant" matches "cloudant.url" but not "cloudantdb.url"
+     * @return true if a name equals the prefix or starts with the prefix followed by "."
+     */
+    boolean containsPrefix(String prefix) {
+        return find(prefix) != null;
+    }
+
+    /**
+     * @param prefix The prefix, matched on whole segments
+     * @return The sorted names which equal the prefix or start with the prefix followed by "."
+     */
+    List<String> getNames(String prefix) {
+        Node node = find(prefix);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        List<String> found = new ArrayList<>();
+        collect(node, found);
+        return found;
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        int start = 0;
+        while (node != null && start <= prefix.length()) {
+            int end = prefix.indexOf('.', start);
+            if (end < 0) {
+                end = prefix.length();
+            }
+            node = node.children.get(prefix.substring(start, end));
+            start = end + 1;
+        }
+        return node;
+    }
+
+    private static void collect(Node node, List<String> found) {
+        if (node.name != null) {
+            found.add(node.name);
+        }
+        for (Node child : node.children.values()) {
+            collect(child, found);
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new TreeMap<>();
+        private String name;            //the mapped name ending at this node, if any
+    }
+}
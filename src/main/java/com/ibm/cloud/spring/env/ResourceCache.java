@@ -0,0 +1,219 @@
+package com.ibm.cloud.spring.env;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of loaded resources, such as parsed JSON files, by location.
+ *
+ * A missing value is loaded by the first caller on its own thread, and callers which
+ * ask for it while it is loading wait for that load rather than on a lock, so loads of
+ * different resources never block each other. A resource which could not be found is
+ * cached for a short time only, so a file written after startup is seen soon after it
+ * appears. When refresh is enabled, a value older than the refresh interval is reloaded
+ * in the background on its next use, and the old value is returned until that completes.
+ *
+ * @param <V> The type of the loaded values
+ */
+final class ResourceCache<V> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceCache.class);
+
+    private final String name;                      //the name of the cache in the statistics
+    private final Function<String, V> loader;       //loads a resource by location, null if it does not exist
+    private final int maximumSize;
+    private final long negativeTtlNanos;            //how long a resource which does not exist is cached
+    private final long refreshNanos;                //age after which a value is reloaded in the background, 0 for never
+    private final Executor refreshExecutor;         //null when refresh is disabled
+    private final CloudServicesStats stats;         //null when statistics are not being collected
+    private final ConcurrentMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    ResourceCache(String name, Function<String, V> loader, int maximumSize, long negativeTtlNanos,
+                  long refreshNanos, Executor refreshExecutor, CloudServicesStats stats) {
+        this.name = name;
+        this.loader = loader;
+        this.maximumSize = maximumSize;
+        this.negativeTtlNanos = negativeTtlNanos;
+        this.refreshNanos = refreshExecutor == null ? 0 : refreshNanos;
+        this.refreshExecutor = refreshExecutor;
+        this.stats = stats;
+    }
+
+    /**
+     * Get a resource, loading it if it is not cached.
+     *
+     * @param location The location of the resource
+     * @return The resource, or null if it does not exist
+     * @throws RuntimeException thrown by the loader, which is not cached
+     */
+    V get(String location) {
+        long now = System.nanoTime();
+        while (true) {
+            Entry<V> entry = entries.get(location);
+            if (entry != null && !entry.isExpired(now, negativeTtlNanos)) {
+                recordHit();
+                entry.accessedAt = now;
+                if (refreshNanos != 0 && entry.isLoaded() && now - entry.loadedAt >= refreshNanos) {
+                    refresh(location, entry);
+                }
+                return entry.await();
+            }
+            Entry<V> loading = new Entry<>(now);
+            if (entry == null ? entries.putIfAbsent(location, loading) == null : entries.replace(location, entry, loading)) {
+                recordMiss();
+                evictIfFull();
+                return load(location, loading);
+            }
+            // another caller started loading the resource first, so wait for its load
+        }
+    }
+
+    /**
+     * Discard a resource, so that it is loaded again on its next use.
+     *
+     * @param location The location of the resource
+     */
+    void invalidate(String location) {
+        entries.remove(location);
+    }
+
+    /**
+     * Discard every resource.
+     */
+    void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * @return The number of resources cached or loading
+     */
+    int size() {
+        return entries.size();
+    }
+
+    private V load(String location, Entry<V> entry) {
+        V value;
+        try {
+            value = loader.apply(location);
+        } catch (RuntimeException | Error e) {
+            entries.remove(location, entry);        //failures are not cached, the next caller tries again
+            entry.fail(e);                          //including errors, so callers waiting for this load are not blocked forever
+            throw e;
+        }
+        entry.complete(value, System.nanoTime());
+        return value;
+    }
+
+    private void refresh(final String location, final Entry<V> entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;     //already being refreshed
+        }
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Entry<V> refreshed = new Entry<>(entry.accessedAt);
+                        refreshed.complete(loader.apply(location), System.nanoTime());
+                        entries.replace(location, entry, refreshed);    //unless it was invalidated meanwhile
+                    } catch (RuntimeException e) {
+                        LOGGER.debug("Unable to refresh {}", location, e);
+                        entry.refreshing.set(false);    //keep the old value and try again on its next use
+                    } catch (Error e) {
+                        entry.refreshing.set(false);
+                        throw e;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Discard the least recently used resources that have loaded until the cache is within its size.
+     */
+    private void evictIfFull() {
+        while (entries.size() > maximumSize) {
+            Map.Entry<String, Entry<V>> eldest = null;
+            for (Map.Entry<String, Entry<V>> candidate : entries.entrySet()) {
+                if (candidate.getValue().isLoaded()
+                        && (eldest == null || candidate.getValue().accessedAt - eldest.getValue().accessedAt < 0)) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;     //everything is still loading
+            }
+            entries.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void recordHit() {
+        CloudServicesStats stats = this.stats;
+        if (stats != null) {
+            stats.recordCacheHit(name);
+        }
+    }
+
+    private void recordMiss() {
+        CloudServicesStats stats = this.stats;
+        if (stats != null) {
+            stats.recordCacheMiss(name);
+        }
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> value = new CompletableFuture<>();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long loadedAt;         //System.nanoTime() when the value was loaded
+        private volatile boolean missing;       //true if the resource did not exist
+        private volatile long accessedAt;       //System.nanoTime() of the last use, for eviction
+
+        Entry(long now) {
+            this.accessedAt = now;
+        }
+
+        void complete(V loaded, long now) {
+            loadedAt = now;
+            missing = loaded == null;
+            value.complete(loaded);
+        }
+
+        void fail(Throwable e) {
+            value.completeExceptionally(e);
+        }
+
+        boolean isLoaded() {
+            return value.isDone();
+        }
+
+        boolean isExpired(long now, long negativeTtlNanos) {
+            return isLoaded() && missing && now - loadedAt >= negativeTtlNanos;
+        }
+
+        V await() {
+            try {
+                return value.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();      //the exception thrown by the loader to the caller which loaded it
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
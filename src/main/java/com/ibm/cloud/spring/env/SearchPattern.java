@@ -0,0 +1,419 @@
+package com.ibm.cloud.spring.env;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A single compiled entry from the "searchPatterns" of a mapping. Patterns are
+ * parsed once when the mappings are loaded, so resolving a value does no string
+ * processing beyond the lookup in the source itself.
+ */
+abstract class SearchPattern {
+
+    private final String protocol;
+    private final String pattern;
+
+    private SearchPattern(String protocol, String pattern) {
+        this.protocol = protocol;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Compile a search pattern with format "src:target" which uses one of the built in protocols.
+     *
+     * @param pattern The search pattern from the mappings
+     * @param mappingsVersion The version of the mappings the pattern was read from
+     * @return The compiled pattern
+     * @throws IllegalArgumentException if the pattern is malformed
+     */
+    static SearchPattern compile(String pattern, int mappingsVersion) {
+        return compile(pattern, mappingsVersion, Collections.<String, ServiceValueResolver>emptyMap());
+    }
+
+    /**
+     * Check if a protocol is handled by the library itself rather than a {@link ServiceValueResolver}.
+     *
+     * @param protocol The protocol
+     * @return true if the protocol is built in
+     */
+    static boolean isBuiltIn(String protocol) {
+        switch (protocol) {
+            case "user-provided":
+            case "cloudfoundry":
+            case "env":
+            case "file":
+            case "binding":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Compile a search pattern with format "src:target".
+     *
+     * @param pattern The search pattern from the mappings
+     * @param mappingsVersion The version of the mappings the pattern was read from
+     * @param resolvers The resolvers for protocols which are not built in, by protocol
+     * @return The compiled pattern
+     * @throws IllegalArgumentException if the pattern is malformed
+     */
+    static SearchPattern compile(String pattern, int mappingsVersion, Map<String, ServiceValueResolver> resolvers) {
+        String token[] = parseOnfirst(pattern, ":");
+        if (token[0].isEmpty() || token[1].isEmpty()) {
+            throw new IllegalArgumentException("Invalid search pattern : " + pattern);
+        }
+        String target = token[1];
+        switch (token[0]) {
+            case "user-provided": {
+                int i = target.lastIndexOf(":");
+                if (i == -1 || i == target.length() - 1) {
+                    throw new IllegalArgumentException("Invalid user-provided pattern : " + pattern);
+                }
+                return new UserProvided(pattern, target.substring(0, i), compilePath(target.substring(i + 1), pattern));
+            }
+            case "cloudfoundry":
+                return new CloudFoundry(pattern, compilePath(requireJsonPath(target, pattern), pattern));
+            case "env":
+                if (target.contains(":")) {
+                    String envToken[] = parseOnfirst(target, ":");
+                    if (envToken[0].isEmpty()) {
+                        throw new IllegalArgumentException("Invalid env pattern : " + pattern);
+                    }
+                    return new Env(pattern, envToken[0], compilePath(requireJsonPath(envToken[1], pattern), pattern));
+                }
+                return new Env(pattern, target, null);
+            case "file":
+                if (target.contains(":")) {
+                    String fileToken[] = parseOnfirst(target, ":");
+                    if (fileToken[0].isEmpty()) {
+                        throw new IllegalArgumentException("Invalid file pattern : " + pattern);
+                    }
+                    return new JsonFile(pattern, fileToken[0], compilePath(requireJsonPath(fileToken[1], pattern), pattern));
+                }
+                // if no location within the file has been specified then
+                // assume that the value == the first line of the file contents
+                // Relative path means it's a classpath resource
+                String location;
+                if (mappingsVersion > 1) {
+                    location = target.startsWith("/") ? "file:" + target : "classpath:" + target;
+                } else {
+                    location = target.startsWith("/server/") ? "classpath:" + target.substring("/server/".length()) : "file:" + target;
+                }
+                return new TextFile(pattern, location);
+            case "binding": {
+                // binding:<binding name>:<key> or binding:type=<binding type>:<key>
+                int i = target.lastIndexOf(":");
+                if (i < 1 || i == target.length() - 1) {
+                    throw new IllegalArgumentException("Invalid binding pattern : " + pattern);
+                }
+                String binding = target.substring(0, i);
+                String key = target.substring(i + 1);
+                if (binding.startsWith("type=")) {
+                    if (binding.length() == "type=".length()) {
+                        throw new IllegalArgumentException("Invalid binding pattern : " + pattern);
+                    }
+                    return new Binding(pattern, null, binding.substring("type=".length()), key);
+                }
+                return new Binding(pattern, binding, null, key);
+            }
+            default:
+                ServiceValueResolver resolver = resolvers.get(token[0]);
+                if (resolver == null) {
+                    throw new IllegalArgumentException("Unknown protocol in searchPatterns : " + token[0]);
+                }
+                return new Resolver(pattern, resolver, target);
+        }
+    }
+
+    /**
+     * Resolve this pattern.
+     *
+     * @param configMap The config map providing access to the sources
+     * @param batch The sources already read by the batch this is part of, or null for a single lookup
+     * @return The value or null if it could not be found
+     */
+    abstract String resolve(CloudServicesConfigMap configMap, CloudServicesConfigMap.Batch batch);
+
+    /**
+     * @return true if this pattern should be started before the earlier patterns of its mapping have been tried
+     */
+    boolean isSpeculative() {
+        return false;
+    }
+
+    /**
+     * @return true if this pattern reads values held in memory, so trying it costs less than starting a speculative lookup
+     */
+    boolean isInMemory() {
+        return false;
+    }
+
+    /**
+     * Start resolving this pattern on another thread. This is only called when {@link #isSpeculative()} is true,
+     * patterns which cannot be resolved asynchronously are resolved on the calling thread.
+     *
+     * @param configMap The config map the pattern reads its source through
+     * @param executor The executor for the lookup
+     * @return The future value
+     */
+    CompletableFuture<String> resolveAsync(CloudServicesConfigMap configMap, Executor executor) {
+        return CompletableFuture.completedFuture(resolve(configMap, null));
+    }
+
+    /**
+     * Add the parts of VCAP_SERVICES this pattern reads to the selection.
+     *
+     * @param selection The parts of VCAP_SERVICES referenced by the mappings
+     */
+    void select(VcapServices.Selection selection) {
+    }
+
+    /**
+     * @return The absolute path of the file system file this pattern reads, or null if it does not read one
+     */
+    String getFilePath() {
+        return null;
+    }
+
+    /**
+     * Identify the source this pattern reads, so that a change to it can be detected.
+     *
+     * @return "env:" and the name of an environment variable, a "classpath:" or "file:" resource location,
+     * "binding" for the service binding root, or null if changes cannot be detected
+     */
+    String getSource() {
+        return null;
+    }
+
+    /**
+     * @return The protocol of this pattern e.g. "env"
+     */
+    String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    static String[] parseOnfirst(String entry, String delimiter) {
+        String token[] = {"", ""};
+        int i = entry.indexOf(delimiter);
+        if (i > 1) {
+            token[0] = entry.substring(0, i).trim();
+            token[1] = entry.substring(i + 1).trim();
+        }
+        return token;
+    }
+
+    private static String requireJsonPath(String target, String pattern) {
+        if (!target.startsWith("$")) {
+            throw new IllegalArgumentException("Json path must start with $ in search pattern : " + pattern);
+        }
+        return target;
+    }
+
+    private static JsonQuery compilePath(String path, String pattern) {
+        try {
+            return JsonQuery.compile(path);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid json path in search pattern : " + pattern, e);
+        }
+    }
+
+    // Compiled search patterns
+
+    private static final class UserProvided extends SearchPattern {
+        private final String serviceName;
+        private final JsonQuery credentialKey;
+
+        UserProvided(String pattern, String serviceName, JsonQuery credentialKey) {
+            super("user-provided", pattern);
+            this.serviceName = serviceName;
+            this.credentialKey = credentialKey;
+        }
+
+        @Override
+        String getSource() {
+            return "env:VCAP_SERVICES";
+        }
+
+        @Override
+        String resolve(CloudServicesConfigMap configMap, CloudServicesConfigMap.Batch batch) {
+            return configMap.getUserProvidedValue(serviceName, credentialKey, batch);
+        }
+
+        @Override
+        void select(VcapServices.Selection selection) {
+            selection.selectUserProvided(serviceName);
+        }
+
+        @Override
+        boolean isInMemory() {
+            return true;
+        }
+    }
+
+    private static final class CloudFoundry extends SearchPattern {
+        private final JsonQuery jsonPath;
+
+        CloudFoundry(String pattern, JsonQuery jsonPath) {
+            super("cloudfoundry", pattern);
+            this.jsonPath = jsonPath;
+        }
+
+        @Override
+        String getSource() {
+            return "env:VCAP_SERVICES";
+        }
+
+        @Override
+        String resolve(CloudServicesConfigMap configMap, CloudServicesConfigMap.Batch batch) {
+            return configMap.getCloudFoundryValue(jsonPath, batch);
+        }
+
+        @Override
+        void select(VcapServices.Selection selection) {
+            selection.selectPath(jsonPath);
+        }
+
+        @Override
+        boolean isInMemory() {
+            return true;
+        }
+    }
+
+    private static final class Env extends SearchPattern {
+        private final String variable;
+        private final JsonQuery jsonPath;        //null if the value is the whole variable
+
+        Env(String pattern, String variable, JsonQuery jsonPath) {
+            super("env", pattern);
+            this.variable = variable;
+            this.jsonPath = jsonPath;
+        }
+
+        @Override
+        String getSource() {
+            return "env:" + variable;
+        }
+
+        @Override
+        String resolve(CloudServicesConfigMap configMap, CloudServicesConfigMap.Batch batch) {
+            return configMap.getEnvValue(variable, jsonPath, batch);
+        }
+
+        @Override
+        boolean isInMemory() {
+            return true;
+        }
+    }
+
+    private static final class JsonFile extends SearchPattern {
+        private final String path;
+        private final JsonQuery jsonPath;
+
+        JsonFile(String pattern, String path, JsonQuery jsonPath) {
+            super("file", pattern);
+            this.path = path;
+            this.jsonPath = jsonPath;
+        }
+
+        @Override
+        String getSource() {
+            return getFilePath() != null ? "file:" + path : "classpath:" + (path.startsWith("/server/") ? path.substring("/server/".length()) : path);
+        }
+
+        @Override
+        String resolve(CloudServicesConfigMap configMap, CloudServicesConfigMap.Batch batch) {
+            return configMap.getFileValue(path, jsonPath);
+        }
+
+        @Override
+        String getFilePath() {
+            return path.startsWith("/") && !path.startsWith("/server/") ? path : null;
+        }
+    }
+
+    private static final class TextFile extends SearchPattern {
+        private final String location;          //resource location including the classpath: or file: prefix
+
+        TextFile(String pattern, String location) {
+            super("file", pattern);
+            this.location = location;
+        }
+
+        @Override
+        String getSource() {
+            return location;
+        }
+
+        @Override
+        String resolve(CloudServicesConfigMap configMap, CloudServicesConfigMap.Batch batch) {
+            return configMap.getResourceValue(location);
+        }
+
+        @Override
+        String getFilePath() {
+            return location.startsWith("file:") ? location.substring("file:".length()) : null;
+        }
+    }
+
+    private static final class Binding extends SearchPattern {
+        private final String name;              //null when the binding is selected by type
+        private final String type;
+        private final String key;
+
+        Binding(String pattern, String name, String type, String key) {
+            super("binding", pattern);
+            this.name = name;
+            this.type = type;
+            this.key = key;
+        }
+
+        @Override
+        String getSource() {
+            return "binding";
+        }
+
+        @Override
+        String resolve(CloudServicesConfigMap configMap, CloudServicesConfigMap.Batch batch) {
+            return configMap.getBindingValue(name, type, key, batch);
+        }
+    }
+
+    private static final class Resolver extends SearchPattern {
+        private final ServiceValueResolver resolver;
+        private final String target;
+
+        Resolver(String pattern, ServiceValueResolver resolver, String target) {
+            super(resolver.getProtocol(), pattern);
+            this.resolver = resolver;
+            this.target = target;
+        }
+
+        @Override
+        String resolve(CloudServicesConfigMap configMap, CloudServicesConfigMap.Batch batch) {
+            return configMap.getResolverValue(resolver, target);
+        }
+
+        @Override
+        boolean isSpeculative() {
+            return resolver.isAsync() && resolver.getCost() != ServiceValueResolver.Cost.MEMORY;
+        }
+
+        @Override
+        boolean isInMemory() {
+            return resolver.getCost() == ServiceValueResolver.Cost.MEMORY;
+        }
+
+        @Override
+        CompletableFuture<String> resolveAsync(CloudServicesConfigMap configMap, Executor executor) {
+            return resolver.resolveAsync(target, executor);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.ibm.cloud.spring.env;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable index of the Kubernetes service bindings under $SERVICE_BINDING_ROOT,
+ * using the servicebinding.io layout: one directory per binding, containing one file
+ * per credential key, with the binding type in the "type" file.
+ *
+ * The whole tree is read in a single directory walk, and lookups are served from memory.
+ */
+final class ServiceBindings {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceBindings.class);
+    private static final String TYPE = "type";
+    private static final long MAPPED_READ_THRESHOLD = 16 * 1024;       //files at least this large are memory mapped
+
+    static final ServiceBindings EMPTY = new ServiceBindings(null,
+            Collections.<String, Map<String, String>>emptyMap(), Collections.<String, Map<String, String>>emptyMap());
+
+    private final String root;                                  //the binding root this index was read from
+    private final Map<String, Map<String, String>> byName;      //binding name -> key -> value
+    private final Map<String, Map<String, String>> byType;      //binding type -> key -> value, the first binding by name for each type
+
+    private ServiceBindings(String root, Map<String, Map<String, String>> byName, Map<String, Map<String, String>> byType) {
+        this.root = root;
+        this.byName = byName;
+        this.byType = byType;
+    }
+
+    /**
+     * Read all of the bindings under the given root directory.
+     *
+     * @param root The binding root directory
+     * @return The index of the bindings, empty if the directory cannot be read
+     */
+    static ServiceBindings scan(String root) {
+        Map<String, Map<String, String>> byName = new TreeMap<>();     //sorted so the binding chosen for a type is stable
+        Path rootPath = Paths.get(root);
+        try (DirectoryStream<Path> bindings = Files.newDirectoryStream(rootPath)) {
+            for (Path binding : bindings) {
+                String name = binding.getFileName().toString();
+                if (!name.startsWith(".") && Files.isDirectory(binding)) {
+                    Map<String, String> entries = readBinding(binding);
+                    if (entries != null) {
+                        byName.put(name, entries);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.info("Unable to read service bindings from {}: {}", root, e.toString());
+            return new ServiceBindings(root, EMPTY.byName, EMPTY.byType);
+        }
+        Map<String, Map<String, String>> byType = new HashMap<>();
+        for (Map<String, String> binding : byName.values()) {
+            String type = binding.get(TYPE);
+            if (type != null && !byType.containsKey(type)) {
+                byType.put(type, binding);
+            }
+        }
+        return new ServiceBindings(root, Collections.unmodifiableMap(byName), Collections.unmodifiableMap(byType));
+    }
+
+    /**
+     * Read the keys of one binding. A key which cannot be read, for example because it was removed
+     * while Kubernetes swapped the ..data link, is left out rather than losing the other bindings.
+     *
+     * @return The keys and values, or null if the binding directory cannot be read
+     */
+    private static Map<String, String> readBinding(Path binding) {
+        Map<String, String> entries = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(binding)) {
+            for (Path file : files) {
+                String key = file.getFileName().toString();
+                // skip the hidden ..data style entries of Kubernetes volumes
+                if (!key.startsWith(".") && Files.isRegularFile(file)) {
+                    try {
+                        entries.put(key, read(file));
+                    } catch (IOException e) {
+                        LOGGER.info("Unable to read service binding key {}: {}", file, e.toString());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.info("Unable to read service binding {}: {}", binding, e.toString());
+            return null;
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+
+    private static String read(Path file) throws IOException {
+        String value;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAPPED_READ_THRESHOLD) {
+                value = StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)).toString();
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // read until the buffer is full
+                }
+                buffer.flip();
+                value = StandardCharsets.UTF_8.decode(buffer).toString();
+            }
+        }
+        int end = value.length();
+        while (end > 0 && (value.charAt(end - 1) == '\n' || value.charAt(end - 1) == '\r')) {
+            end--;          //ignore trailing line breaks added by editors and kubectl
+        }
+        return value.substring(0, end);
+    }
+
+    /**
+     * Check if this index was read from the given root.
+     *
+     * @param value The current binding root
+     * @return true if the index is for the root
+     */
+    boolean isScanOf(String value) {
+        return root != null && root.equals(value);
+    }
+
+    /**
+     * @param name The name of the binding directory
+     * @param key The credential key
+     * @return The value, or null if there is no such binding or key
+     */
+    String getByName(String name, String key) {
+        Map<String, String> binding = byName.get(name);
+        return binding == null ? null : binding.get(key);
+    }
+
+    /**
+     * @param type The binding type
+     * @param key The credential key
+     * @return The value, or null if there is no binding of the type or it does not have the key
+     */
+    String getByType(String type, String key) {
+        Map<String, String> binding = byType.get(type);
+        return binding == null ? null : binding.get(key);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ibm.cloud.spring.env;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A source of values for a search pattern protocol, in addition to the built in
+ * user-provided, cloudfoundry, env, file and binding protocols. Implementations are
+ * discovered through "META-INF/spring.factories" under this interface's name, and
+ * are used for search patterns with format "protocol:target".
+ */
+public interface ServiceValueResolver {
+
+    /**
+     * How expensive a resolver is to call, used to decide whether its lookups are
+     * worth starting speculatively.
+     */
+    enum Cost {
+        /** Values are held in memory */
+        MEMORY,
+        /** Values are read from the local file system or a local process */
+        LOCAL_IO,
+        /** Values are read over the network */
+        REMOTE
+    }
+
+    /**
+     * @return The protocol this resolver handles, the part of the search pattern before the first ":"
+     */
+    String getProtocol();
+
+    /**
+     * @return How expensive a lookup is
+     */
+    Cost getCost();
+
+    /**
+     * @return true if lookups can run on another thread, so that costly lookups can be started
+     * before the earlier search patterns of a mapping have been tried
+     */
+    default boolean isAsync() {
+        return false;
+    }
+
+    /**
+     * Resolve a value.
+     *
+     * @param target The part of the search pattern after the first ":"
+     * @return The value or null if it could not be found
+     */
+    String resolve(String target);
+
+    /**
+     * Resolve a value without blocking the caller. This is only called when {@link #isAsync()} is true.
+     *
+     * @param target The part of the search pattern after the first ":"
+     * @param executor An executor the resolver may run the lookup on
+     * @return The future value, completed with null if it could not be found
+     */
+    default CompletableFuture<String> resolveAsync(String target, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> resolve(target), executor);
+    }
+}
@@ -0,0 +1,219 @@
+package com.ibm.cloud.spring.env;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable parsed snapshot of the VCAP_SERVICES environment value.
+ *
+ * The JSON is parsed once into a Jackson tree, and the "user-provided" services
+ * are indexed by name so that their credentials can be found without scanning.
+ * When the mappings only reference particular services, the JSON is streamed and
+ * only those services are kept.
+ */
+final class VcapServices {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VcapServices.class);
+    private static final String USER_PROVIDED = "user-provided";
+
+    private final String source;                                //the raw value this snapshot was parsed from
+    private final JsonNode document;
+    private final Map<String, JsonNode> userProvided;           //user-provided service name -> credentials
+
+    private VcapServices(String source, JsonNode document, Map<String, JsonNode> userProvided) {
+        this.source = source;
+        this.document = document;
+        this.userProvided = userProvided;
+    }
+
+    /**
+     * Parse a VCAP_SERVICES value. Invalid JSON results in an empty snapshot
+     * so that the failure is only reported once.
+     *
+     * @param source The VCAP_SERVICES JSON
+     * @return The parsed snapshot
+     */
+    static VcapServices parse(String source) {
+        return parse(source, null);
+    }
+
+    /**
+     * Parse a VCAP_SERVICES value, keeping only the parts of it that are selected.
+     * The JSON is streamed and everything which is not selected is skipped without
+     * being materialized. Invalid JSON results in an empty snapshot so that the
+     * failure is only reported once.
+     *
+     * @param source The VCAP_SERVICES JSON
+     * @param selection The services to keep, or null to keep everything
+     * @return The parsed snapshot
+     */
+    static VcapServices parse(String source, Selection selection) {
+        JsonNode document;
+        try {
+            if (selection == null || selection.all) {
+                document = CloudServicesJson.parse(source);
+            } else {
+                document = parseSelected(source, selection);
+            }
+        } catch (IOException e) {
+            LOGGER.info("Unexpected exception reading VCAP_SERVICES: {}", e.toString());
+            document = null;
+        }
+        if (document == null) {
+            return new VcapServices(source, MissingNode.getInstance(), Collections.<String, JsonNode>emptyMap());
+        }
+        Map<String, JsonNode> userProvided = new HashMap<>();
+        JsonNode services = document.get(USER_PROVIDED);
+        if (services != null) {
+            if (services.isArray()) {
+                for (final JsonNode entryNode : services) {
+                    JsonNode nameNode = entryNode.get("name");
+                    JsonNode creds = entryNode.get("credentials");
+                    if (nameNode != null && creds != null && !userProvided.containsKey(nameNode.asText())) {
+                        userProvided.put(nameNode.asText(), creds);     //first entry with a given name wins
+                    }
+                }
+            } else {
+                LOGGER.info("VCAP_SERVICES user-provided field is not an array");
+            }
+        }
+        return new VcapServices(source, document, Collections.unmodifiableMap(userProvided));
+    }
+
+    private static JsonNode parseSelected(String source, Selection selection) throws IOException {
+        try (JsonParser parser = CloudServicesJson.MAPPER.getFactory().createParser(source)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            ObjectNode document = CloudServicesJson.MAPPER.createObjectNode();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String label = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (selection.services.contains(label)) {
+                    document.set(label, parser.readValueAsTree());
+                } else if (USER_PROVIDED.equals(label) && token == JsonToken.START_ARRAY && !selection.userProvided.isEmpty()) {
+                    document.set(label, parseUserProvided(parser, selection.userProvided));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return document;
+        }
+    }
+
+    private static ArrayNode parseUserProvided(JsonParser parser, Set<String> names) throws IOException {
+        ArrayNode services = CloudServicesJson.MAPPER.createArrayNode();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String name = null;
+            JsonNode creds = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("name".equals(field) && token.isScalarValue()) {
+                    name = parser.getText();
+                } else if ("credentials".equals(field) && (name == null || names.contains(name))) {
+                    creds = parser.readValueAsTree();       //the name may come after the credentials
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (name != null && creds != null && names.contains(name)) {
+                ObjectNode service = services.addObject();
+                service.put("name", name);
+                service.set("credentials", creds);
+            }
+        }
+        return services;
+    }
+
+    /**
+     * Check if this snapshot was parsed from the given value.
+     *
+     * @param value The current VCAP_SERVICES value
+     * @return true if the snapshot is still valid for the value
+     */
+    boolean isSnapshotOf(String value) {
+        return source == value || source.equals(value);
+    }
+
+    /**
+     * Read a value from the VCAP_SERVICES document.
+     *
+     * @param jsonPath The json path of the value
+     * @return The value or null if there is no data at the path
+     */
+    String read(JsonQuery jsonPath) {
+        return jsonPath.read(document);
+    }
+
+    /**
+     * Read a credential from a user-provided service.
+     *
+     * @param serviceName The name of the user-provided service
+     * @param credentialKey The json path of the value within the credentials
+     * @return The value or null if the service or credential could not be found
+     */
+    String readUserProvided(String serviceName, JsonQuery credentialKey) {
+        JsonNode creds = userProvided.get(serviceName);
+        if (creds == null) {
+            return null;
+        }
+        return credentialKey.read(creds);
+    }
+
+    /**
+     * The parts of VCAP_SERVICES which are referenced by the mappings.
+     */
+    static final class Selection {
+        private final Set<String> services = new HashSet<>();       //service labels which are kept whole
+        private final Set<String> userProvided = new HashSet<>();   //names of user-provided services whose credentials are kept
+        private boolean all = false;
+
+        /**
+         * Keep the whole of VCAP_SERVICES, for json paths which are not rooted at a single service label.
+         */
+        void selectAll() {
+            all = true;
+        }
+
+        /**
+         * @param jsonPath A json path into VCAP_SERVICES, the service label it is rooted at is kept
+         */
+        void selectPath(JsonQuery jsonPath) {
+            // compiled paths are normalized to bracket notation e.g. $['cloudantNoSQLDB'][0]['credentials']['url']
+            String path = jsonPath.getPath();
+            if (path.startsWith("$['")) {
+                int end = path.indexOf('\'', 3);
+                if (end > 3 && end + 1 < path.length() && path.charAt(end + 1) == ']') {
+                    services.add(path.substring(3, end));
+                    return;
+                }
+            }
+            selectAll();        //wildcards, deep scans and filters can match any service
+        }
+
+        /**
+         * @param name The name of a user-provided service whose credentials are kept
+         */
+        void selectUserProvided(String name) {
+            userProvided.add(name);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class tests resolving values without blocking the calling thread.
+ */
+public class CloudServicesAsyncTest {
+
+    String CLOUDANT_CONFIG_JSON = "{\"url\":\"https://env-json.cloudant.com\",\"username\":\"env-json-username\",\"password\":\"env-json-password\"}";
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    private final ConfigurableApplicationContext appContext =
+            new AnnotationConfigApplicationContext();
+
+    private CloudServicesConfigMap postProcess(String mappings) {
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=" + mappings,
+                CloudServicesSettings.ASYNC_THREADS + "=2");
+        initializer.postProcessEnvironment(this.appContext.getEnvironment(), null);
+        return CloudServicesConfigMap.from(appContext.getEnvironment());
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("cloudant_config");
+        CloudServicesConcurrencyTest.GateResolver.entered = new CountDownLatch(0);
+        CloudServicesConcurrencyTest.GateResolver.released = new CountDownLatch(0);
+    }
+
+    @Test
+    public void resolvedOffCallerThread() throws Exception {
+        CloudServicesConfigMap configMap = postProcess("/mappings.concurrency.json");
+        CloudServicesConcurrencyTest.GateResolver.value = "gated-value";
+        CloudServicesConcurrencyTest.GateResolver.entered = new CountDownLatch(1);
+        CloudServicesConcurrencyTest.GateResolver.released = new CountDownLatch(1);
+        CompletableFuture<String> value = configMap.resolveAsync("concurrent.gated");
+        assertTrue(CloudServicesConcurrencyTest.GateResolver.entered.await(5, TimeUnit.SECONDS));
+        assertFalse(value.isDone());
+        CloudServicesConcurrencyTest.GateResolver.released.countDown();
+        assertEquals("gated-value", value.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void unmappedCompletedImmediately() {
+        CloudServicesConfigMap configMap = postProcess("/mappings.batch.json");
+        CompletableFuture<String> value = configMap.resolveAsync("server.port");
+        assertTrue(value.isDone());
+        assertNull(value.join());
+    }
+
+    @Test
+    public void resolveAllAsync() throws Exception {
+        CloudServicesConfigMap configMap = postProcess("/mappings.batch.json");
+        System.setProperty("cloudant_config", CLOUDANT_CONFIG_JSON);
+        assertEquals("env-json-username", configMap.resolveAsync("cloudant.username").get(10, TimeUnit.SECONDS));
+        Map<String, String> values = configMap.resolveAllAsync(Arrays.asList("cloudant.url", "cloudant.unknown"))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(1, values.size());
+        assertEquals("https://env-json.cloudant.com", values.get("cloudant.url"));
+        values = configMap.resolvePrefixAsync("cloudant").get(10, TimeUnit.SECONDS);
+        assertEquals(3, values.size());
+        assertEquals("env-json-password", values.get("cloudant.password"));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectedAfterShutdown() {
+        CloudServicesConfigMap configMap = postProcess("/mappings.batch.json");
+        configMap.shutdownExecutors();
+        configMap.resolveAsync("cloudant.url");
+    }
+}
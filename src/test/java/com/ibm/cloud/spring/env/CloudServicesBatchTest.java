@@ -0,0 +1,77 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ *  This class tests resolving several names at once with resolveAll and resolvePrefix.
+ */
+public class CloudServicesBatchTest {
+
+    String CLOUDANT_CONFIG_JSON = "{\"url\":\"https://env-json.cloudant.com\",\"username\":\"env-json-username\",\"password\":\"env-json-password\"}";
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    private final ConfigurableApplicationContext appContext =
+            new AnnotationConfigApplicationContext();
+
+    private CloudServicesConfigMap configMap;
+
+    @Before
+    public void setUp() {
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.batch.json",
+                CloudServicesSettings.METRICS_ENABLED + "=true");
+        initializer.postProcessEnvironment(this.appContext.getEnvironment(), null);
+        configMap = CloudServicesConfigMap.from(appContext.getEnvironment());
+        System.setProperty("cloudant_config", CLOUDANT_CONFIG_JSON);
+        System.setProperty("cloudantdb_url", "https://cloudantdb.cloudant.com");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("cloudant_config");
+        System.clearProperty("cloudantdb_url");
+    }
+
+    @Test
+    public void resolveAll() {
+        Map<String, String> values = configMap.resolveAll(Arrays.asList("cloudant.username", "cloudant.unknown", "cloudant.url"));
+        assertEquals(2, values.size());
+        assertEquals("env-json-username", values.get("cloudant.username"));
+        assertEquals("https://env-json.cloudant.com", values.get("cloudant.url"));
+        assertEquals(Arrays.asList("cloudant.username", "cloudant.url"), Arrays.asList(values.keySet().toArray()));
+    }
+
+    @Test
+    public void resolvePrefix() {
+        Map<String, String> values = configMap.resolvePrefix("cloudant");
+        assertEquals(3, values.size());
+        assertEquals("env-json-password", values.get("cloudant.password"));
+        assertEquals("https://cloudantdb.cloudant.com", configMap.resolvePrefix("cloudantdb").get("cloudantdb.url"));
+    }
+
+    @Test
+    public void sourceParsedOnceUntilChanged() {
+        configMap.resolvePrefix("cloudant");
+        assertEquals(1, configMap.getStats().getJsonParses());
+        configMap.resolvePrefix("cloudant");
+        assertEquals("env-json-username", configMap.getValue("cloudant.username"));
+        assertEquals(1, configMap.getStats().getJsonParses());
+        System.setProperty("cloudant_config", "{\"username\":\"rotated-username\"}");
+        assertEquals("rotated-username", configMap.getValue("cloudant.username"));
+        assertEquals(2, configMap.getStats().getJsonParses());
+        assertEquals(6, configMap.getStats().getCaches().get("env").getHits());
+        assertEquals(2, configMap.getStats().getCaches().get("env").getMisses());
+    }
+}
@@ -0,0 +1,76 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ *  This class tests caching of resolved values, which is enabled
+ *  through the environment given to CloudServicesEnvironmentPostProcessor.
+ */
+public class CloudServicesCacheTest {
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    private final ConfigurableApplicationContext appContext =
+            new AnnotationConfigApplicationContext();
+
+    private Environment postProcess(String... properties) {
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.env.json",
+                CloudServicesSettings.CACHE_ENABLED + "=true");
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext, properties);
+        initializer.postProcessEnvironment(this.appContext.getEnvironment(), null);
+        return appContext.getEnvironment();
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("cloudant_password");
+    }
+
+    @Test
+    public void cachedUntilRefresh() {
+        Environment environment = postProcess();
+        System.setProperty("cloudant_password", "env-password");
+        assertEquals("env-password", environment.getProperty("cloudant.password"));
+        System.setProperty("cloudant_password", "rotated-password");
+        assertEquals("env-password", environment.getProperty("cloudant.password"));
+        CloudServicesConfigMap.from(environment).refresh();
+        assertEquals("rotated-password", environment.getProperty("cloudant.password"));
+    }
+
+    @Test
+    public void notFoundIsCached() {
+        Environment environment = postProcess();
+        assertNull(environment.getProperty("cloudant.password"));
+        System.setProperty("cloudant_password", "env-password");
+        assertNull(environment.getProperty("cloudant.password"));
+        CloudServicesConfigMap.from(environment).refresh();
+        assertEquals("env-password", environment.getProperty("cloudant.password"));
+    }
+
+    @Test
+    public void expiresAfterTtl() {
+        Environment environment = postProcess(CloudServicesSettings.CACHE_TTL + "=1000");
+        AtomicLong now = new AtomicLong();
+        CloudServicesConfigMap.from(environment).setClock(now::get);
+        System.setProperty("cloudant_password", "env-password");
+        assertEquals("env-password", environment.getProperty("cloudant.password"));
+        System.setProperty("cloudant_password", "rotated-password");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertEquals("env-password", environment.getProperty("cloudant.password"));
+        now.incrementAndGet();
+        assertEquals("rotated-password", environment.getProperty("cloudant.password"));
+    }
+}
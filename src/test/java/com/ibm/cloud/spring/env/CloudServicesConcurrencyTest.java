@@ -0,0 +1,244 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class tests resolving values through CloudServicesPropertySource from many
+ *  threads at once, as lazily initialized beans do when the context starts in parallel.
+ */
+public class CloudServicesConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int LOOKUPS = 2000;
+
+    String VCAP_SERVICES = "{\"cloudantNoSQLDB\":[{\"credentials\":{\"url\":\"https://VCAP_SERVICES.cloudant.com\"},\"label\":\"cloudantNoSQLDB\",\"name\":\"VCAP_SERVICES-cloudantno-1234567890\"}],"
+            + "\"user-provided\":[{\"credentials\":{\"password\":\"user-provided-password\"},\"label\":\"user-provided\",\"name\":\"cloudant-instance-id\"}]}";
+
+    /**
+     * Resolves "gate:value" once released, and "gate:barrier" once every lookup expected to run at the same time has started.
+     */
+    public static class GateResolver implements ServiceValueResolver {
+
+        static volatile String value;
+        static volatile CountDownLatch entered = new CountDownLatch(0);
+        static volatile CountDownLatch released = new CountDownLatch(0);
+        static volatile CyclicBarrier barrier = new CyclicBarrier(1);
+
+        @Override
+        public String getProtocol() {
+            return "gate";
+        }
+
+        @Override
+        public Cost getCost() {
+            return Cost.MEMORY;
+        }
+
+        @Override
+        public String resolve(String target) {
+            try {
+                if (target.equals("barrier")) {
+                    barrier.await(5, TimeUnit.SECONDS);
+                    return "parallel";
+                }
+                String resolved = value;
+                entered.countDown();
+                released.await(5, TimeUnit.SECONDS);
+                return resolved;
+            } catch (Exception e) {
+                return null;        //the lookups were serialized, or the test failed
+            }
+        }
+    }
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Before
+    public void setUp() {
+        System.setProperty("VCAP_SERVICES", VCAP_SERVICES);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("VCAP_SERVICES");
+        executor.shutdownNow();
+        GateResolver.entered = new CountDownLatch(0);
+        GateResolver.released = new CountDownLatch(0);
+        GateResolver.barrier = new CyclicBarrier(1);
+    }
+
+    private CloudServicesPropertySource postProcess(String mappings, boolean cacheEnabled) {
+        ConfigurableApplicationContext appContext = new AnnotationConfigApplicationContext();
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=" + mappings,
+                CloudServicesSettings.CACHE_ENABLED + "=" + cacheEnabled);
+        initializer.postProcessEnvironment(appContext.getEnvironment(), null);
+        return (CloudServicesPropertySource) appContext.getEnvironment().getPropertySources()
+                .get(CloudServicesEnvironmentPostProcessor.PROPERTY_SOURCE_NAME);
+    }
+
+    private static Map<String, String> expected(String separator) {
+        Map<String, String> expected = new HashMap<>();
+        expected.put("cloudant" + separator + "url", "https://VCAP_SERVICES.cloudant.com");     //cloudfoundry
+        expected.put("cloudant" + separator + "password", "user-provided-password");           //user-provided
+        expected.put("cloudant" + separator + "username", "file-json-username");               //file
+        expected.put("server.port", null);                                                     //unmapped
+        return expected;
+    }
+
+    /**
+     * Look up every name from many threads at once, starting with cold caches, while
+     * another thread repeatedly discards the caches, and check every value.
+     */
+    private void hammer(final CloudServicesPropertySource propertySource, final Map<String, String> expected) throws Exception {
+        final String[] names = expected.keySet().toArray(new String[expected.size()]);
+        final CyclicBarrier start = new CyclicBarrier(THREADS + 1);
+        final Queue<String> failures = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> lookups = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            final int offset = thread;
+            lookups.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int i = 0; i < LOOKUPS; i++) {
+                        String name = names[(offset + i) % names.length];
+                        Object value = propertySource.getProperty(name);
+                        if (!Objects.equals(expected.get(name), value)) {
+                            failures.add(name + "=" + value);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        Future<?> reloads = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                start.await();
+                while (running.get()) {
+                    propertySource.getSource().refresh();
+                    Thread.yield();
+                }
+                return null;
+            }
+        });
+        try {
+            for (Future<?> lookup : lookups) {
+                lookup.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+        }
+        reloads.get(60, TimeUnit.SECONDS);
+        assertTrue("Unexpected values " + failures, failures.isEmpty());
+    }
+
+    @Test
+    public void v1Values() throws Exception {
+        hammer(postProcess("/mappings.v1.json", false), expected("_"));
+    }
+
+    @Test
+    public void v1CachedValues() throws Exception {
+        hammer(postProcess("/mappings.v1.json", true), expected("_"));
+    }
+
+    @Test
+    public void v2Values() throws Exception {
+        hammer(postProcess("/mappings.v2.json", false), expected("."));
+    }
+
+    @Test
+    public void v2CachedValues() throws Exception {
+        hammer(postProcess("/mappings.v2.json", true), expected("."));
+    }
+
+    @Test
+    public void lookupsNotSerialized() throws Exception {
+        final CloudServicesPropertySource propertySource = postProcess("/mappings.concurrency.json", true);
+        int threads = 8;
+        GateResolver.barrier = new CyclicBarrier(threads);      //only trips if all the lookups are resolving at once
+        List<Future<Object>> lookups = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            lookups.add(executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return propertySource.getProperty("concurrent.parallel");
+                }
+            }));
+        }
+        for (Future<Object> lookup : lookups) {
+            assertEquals("parallel", lookup.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void refreshDuringLookupNotCached() throws Exception {
+        final CloudServicesPropertySource propertySource = postProcess("/mappings.concurrency.json", true);
+        GateResolver.value = "old-value";
+        GateResolver.entered = new CountDownLatch(1);
+        GateResolver.released = new CountDownLatch(1);
+        Future<Object> lookup = executor.submit(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return propertySource.getProperty("concurrent.gated");
+            }
+        });
+        assertTrue(GateResolver.entered.await(5, TimeUnit.SECONDS));
+        GateResolver.value = "new-value";
+        propertySource.getSource().refresh();
+        GateResolver.released.countDown();
+        assertEquals("old-value", lookup.get(10, TimeUnit.SECONDS));
+        assertEquals("new-value", propertySource.getProperty("concurrent.gated"));
+    }
+
+    @Test
+    public void fileChangeDuringLookupNotCached() throws Exception {
+        final CloudServicesPropertySource propertySource = postProcess("/mappings.concurrency.json", true);
+        GateResolver.value = "old-value";
+        GateResolver.entered = new CountDownLatch(1);
+        GateResolver.released = new CountDownLatch(1);
+        Future<Object> lookup = executor.submit(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return propertySource.getProperty("concurrent.watched");
+            }
+        });
+        assertTrue(GateResolver.entered.await(5, TimeUnit.SECONDS));
+        GateResolver.value = "new-value";
+        propertySource.getSource().filesChanged(Collections.singleton("/cloud-services-test/watched.txt"));
+        GateResolver.released.countDown();
+        assertEquals("old-value", lookup.get(10, TimeUnit.SECONDS));
+        assertEquals("new-value", propertySource.getProperty("concurrent.watched"));
+    }
+}
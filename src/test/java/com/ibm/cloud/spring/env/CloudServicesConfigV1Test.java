@@ -7,6 +7,7 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 import org.springframework.test.context.support.TestPropertySourceUtils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  *  This class directly tests CloudServicesPropertySource and
@@ -31,7 +32,8 @@ public class CloudServicesConfigV1Test {
 
     @Before
     public void setUp() {
-        CloudServicesConfigMap.getInstance("/mappings.v1.json").setAppContext(appContext);
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.v1.json");
         initializer.postProcessEnvironment(this.appContext.getEnvironment(), null);
     }
 
@@ -79,6 +81,15 @@ public class CloudServicesConfigV1Test {
         assertEquals("https://file-url.cloudant.com", url);
     }
 
+    @Test
+    public void getValueUnmapped() {
+        System.setProperty("cloudant_unknown", "env-unknown");
+        String value = appContext.getEnvironment().getProperty("cloudant_unknown");
+        System.clearProperty("cloudant_unknown");
+        assertEquals("env-unknown", value);
+        assertNull(CloudServicesConfigMap.from(appContext.getEnvironment()).getValue("cloudant_unknown"));
+    }
+
     @Test
     public void getValueApplicationProperties() {
         TestPropertySourceUtils.addPropertiesFilesToEnvironment(appContext, "/application.properties");
@@ -2,11 +2,17 @@ package com.ibm.cloud.spring.env;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.test.context.support.TestPropertySourceUtils;
 
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  *  This class directly tests CloudServicesPropertySource and
@@ -31,7 +37,8 @@ public class CloudServicesConfigV2Test {
 
     @Before
     public void setUp() {
-        CloudServicesConfigMap.getInstance("/mappings.v2.json").setAppContext(appContext);
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.v2.json");
         initializer.postProcessEnvironment(this.appContext.getEnvironment(), null);
     }
 
@@ -79,6 +86,36 @@ public class CloudServicesConfigV2Test {
         assertEquals("https://file-url.cloudant.com", url);
     }
 
+    @Test
+    public void getValueUnmapped() {
+        System.setProperty("cloudant.unknown", "env-unknown");
+        String value = appContext.getEnvironment().getProperty("cloudant.unknown");
+        System.clearProperty("cloudant.unknown");
+        assertEquals("env-unknown", value);
+        assertNull(CloudServicesConfigMap.from(appContext.getEnvironment()).getValue("cloudant.unknown"));
+    }
+
+    @Test
+    public void getValuePerEnvironment() {
+        ConfigurableApplicationContext v1Context = new AnnotationConfigApplicationContext();
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(v1Context,
+                CloudServicesSettings.MAPPINGS + "=/mappings.v1.json");
+        initializer.postProcessEnvironment(v1Context.getEnvironment(), null);
+        assertEquals("file-json-username", v1Context.getEnvironment().getProperty("cloudant_username"));
+        assertNull(v1Context.getEnvironment().getProperty("cloudant.username"));
+        assertEquals("file-json-username", appContext.getEnvironment().getProperty("cloudant.username"));
+        assertNull(appContext.getEnvironment().getProperty("cloudant_username"));
+    }
+
+    @Test
+    public void getSubProperties() {
+        Map<String, Object> cloudant = new RelaxedPropertyResolver(appContext.getEnvironment(), "cloudant.").getSubProperties("");
+        assertEquals("file-json-username", cloudant.get("username"));
+        assertEquals("https://file-url.cloudant.com", cloudant.get("url"));
+        assertTrue(CloudServicesConfigMap.from(appContext.getEnvironment()).containsPrefix("cloudant"));
+        assertFalse(CloudServicesConfigMap.from(appContext.getEnvironment()).containsPrefix("cloud"));
+    }
+
     @Test
     public void getValueApplicationProperties() {
         TestPropertySourceUtils.addPropertiesFilesToEnvironment(appContext, "/application.properties");
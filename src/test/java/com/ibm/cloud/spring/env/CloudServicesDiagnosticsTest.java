@@ -0,0 +1,67 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class tests the diagnostics reported for every mapped name, directly and
+ *  through the actuator endpoint.
+ */
+public class CloudServicesDiagnosticsTest {
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    private final ConfigurableApplicationContext appContext =
+            new AnnotationConfigApplicationContext();
+
+    @Before
+    public void setUp() {
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.env.json");
+        initializer.postProcessEnvironment(this.appContext.getEnvironment(), null);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("cloudant_username");
+    }
+
+    @Test
+    public void diagnose() {
+        System.setProperty("cloudant_username", "env-username");
+        List<CloudServicesResolution> resolutions = CloudServicesConfigMap.from(appContext.getEnvironment()).diagnose();
+        assertEquals(3, resolutions.size());
+        CloudServicesResolution username = resolutions.get(2);
+        assertEquals("cloudant.username", username.getName());
+        assertTrue(username.isResolved());
+        assertEquals("env:cloudant_username", username.getPattern());
+        assertEquals(0, username.getIndex());
+        assertEquals("env", username.getProtocol());
+        assertEquals("env-username".length(), username.getLength());
+        assertFalse(username.toString().contains("env-username"));
+        CloudServicesResolution url = resolutions.get(1);
+        assertEquals("cloudant.url", url.getName());
+        assertFalse(url.isResolved());
+        assertEquals(-1, url.getIndex());
+        assertEquals(-1, url.getLength());
+    }
+
+    @Test
+    public void endpoint() {
+        CloudServicesEndpoint endpoint = new CloudServicesEndpoint(appContext.getEnvironment());
+        assertEquals("cloudservices", endpoint.getId());
+        assertEquals(3, endpoint.invoke().size());
+        assertTrue(new CloudServicesEndpoint(new AnnotationConfigApplicationContext().getEnvironment()).invoke().isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class tests eager resolution of all mapped values, which is enabled
+ *  through the environment given to CloudServicesEnvironmentPostProcessor.
+ */
+public class CloudServicesEagerTest {
+
+    String VCAP_SERVICES = "{\"cloudantNoSQLDB\":[{\"credentials\":{\"username\":\"VCAP_SERVICES-username\",\"password\":\"VCAP_SERVICES-password\",\"host\":\"VCAP_SERVICES.cloudant.com\",\"port\":999,\"url\":\"https://VCAP_SERVICES.cloudant.com\"},\"label\":\"cloudantNoSQLDB\",\"name\":\"VCAP_SERVICES-cloudantno-1234567890\"}]}";
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    private final ConfigurableApplicationContext appContext =
+            new AnnotationConfigApplicationContext();
+
+    @Before
+    public void setUp() {
+        System.setProperty("VCAP_SERVICES", VCAP_SERVICES);
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.v2.json",
+                CloudServicesSettings.EAGER_ENABLED + "=true",
+                CloudServicesSettings.EAGER_THREADS + "=2");
+        initializer.postProcessEnvironment(this.appContext.getEnvironment(), null);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("VCAP_SERVICES");
+    }
+
+    @Test
+    public void valuesResolvedAtStartup() {
+        System.clearProperty("VCAP_SERVICES");
+        assertEquals("VCAP_SERVICES-username", appContext.getEnvironment().getProperty("cloudant.username"));
+        assertEquals("VCAP_SERVICES-password", appContext.getEnvironment().getProperty("cloudant.password"));
+        assertEquals("https://VCAP_SERVICES.cloudant.com", appContext.getEnvironment().getProperty("cloudant.url"));
+    }
+
+    @Test
+    public void snapshotIsEnumerable() {
+        PropertySource<?> propertySource = appContext.getEnvironment().getPropertySources()
+                .get(CloudServicesEnvironmentPostProcessor.PROPERTY_SOURCE_NAME);
+        assertTrue(propertySource instanceof EnumerablePropertySource);
+        assertEquals(new HashSet<>(Arrays.asList("cloudant.url", "cloudant.username", "cloudant.password")),
+                new HashSet<>(Arrays.asList(((EnumerablePropertySource<?>) propertySource).getPropertyNames())));
+    }
+}
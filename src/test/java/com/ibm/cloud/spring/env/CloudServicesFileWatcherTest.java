@@ -0,0 +1,84 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ *  This class tests watching files which are updated in place and
+ *  files in a Kubernetes style secret volume.
+ */
+public class CloudServicesFileWatcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BlockingQueue<Set<String>> changes = new LinkedBlockingQueue<>();
+    private CloudServicesFileWatcher watcher;
+
+    @Before
+    public void setUp() {
+        changes.clear();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void fileModified() throws Exception {
+        Path file = folder.newFile("cloudant.url.txt").toPath();
+        Files.write(file, "https://first-url".getBytes());
+        watcher = new CloudServicesFileWatcher(Collections.singleton(file.toString()), changes::add);
+        Files.write(file, "https://second-url".getBytes());     //a different size, so the change is seen within the same millisecond
+        assertEquals(Collections.singleton(file.toString()), changes.poll(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void directoryCreatedLater() throws Exception {
+        // a volume which is mounted after the application starts
+        Path volume = folder.getRoot().toPath().resolve("bindings/cloudant");
+        Path file = volume.resolve("url");
+        watcher = new CloudServicesFileWatcher(Collections.singleton(file.toString()), changes::add);
+        Files.createDirectories(volume);
+        Files.write(file, "https://first-url".getBytes());
+        assertEquals(Collections.singleton(file.toString()), changes.poll(30, TimeUnit.SECONDS));
+        Files.write(file, "https://second-url".getBytes());
+        assertEquals(Collections.singleton(file.toString()), changes.poll(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void kubernetesDataSwap() throws Exception {
+        // <volume>/cloudant.url.txt -> ..data/cloudant.url.txt, ..data -> ..v1
+        Path volume = folder.getRoot().toPath();
+        Files.createDirectory(volume.resolve("..v1"));
+        Files.write(volume.resolve("..v1/cloudant.url.txt"), "https://first-url".getBytes());
+        Files.createSymbolicLink(volume.resolve("..data"), Paths.get("..v1"));
+        Path file = Files.createSymbolicLink(volume.resolve("cloudant.url.txt"), Paths.get("..data/cloudant.url.txt"));
+        watcher = new CloudServicesFileWatcher(Collections.singleton(file.toString()), changes::add);
+
+        Files.createDirectory(volume.resolve("..v2"));
+        Files.write(volume.resolve("..v2/cloudant.url.txt"), "https://second-url".getBytes());
+        Files.createSymbolicLink(volume.resolve("..data_tmp"), Paths.get("..v2"));
+        Files.move(volume.resolve("..data_tmp"), volume.resolve("..data"), StandardCopyOption.ATOMIC_MOVE);
+        assertEquals(Collections.singleton(file.toString()), changes.poll(30, TimeUnit.SECONDS));
+    }
+}
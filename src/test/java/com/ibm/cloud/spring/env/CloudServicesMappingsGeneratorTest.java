@@ -0,0 +1,101 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class tests generating, compiling and loading a mappings class.
+ */
+public class CloudServicesMappingsGeneratorTest {
+
+    private static final String CLASS_NAME = "com.example.GeneratedMappings";
+
+    private static final String MAPPINGS = "{\"version\":2,\"cloudant\":{"
+            + "\"password\":{\"searchPatterns\":[\"env:compiled_password\"]},"
+            + "\"url\":{\"credentials\":{\"searchPatterns\":[\"cloudfoundry:$['cloudantNoSQLDB'][0].credentials.url\",\"file:/tmp/\\\"url\\\".txt\"]}}}}";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        System.clearProperty("compiled_password");
+        System.clearProperty("cloudant_password");
+    }
+
+    private ClassLoader compile(String location, String mappings) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+        String source = CloudServicesMappingsGenerator.generate(location,
+                new ByteArrayInputStream(mappings.getBytes(StandardCharsets.UTF_8)), CLASS_NAME);
+        File file = new File(folder.getRoot(), "GeneratedMappings.java");
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, compiler.run(null, null, null, "-d", folder.getRoot().getAbsolutePath(),
+                "-classpath", System.getProperty("java.class.path"), file.getAbsolutePath()));
+        return new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private CloudServicesConfigMap configMap(ClassLoader classLoader, String mappings) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", Collections.<String, Object>singletonMap(
+                CloudServicesSettings.MAPPINGS_CLASS, CLASS_NAME)));
+        environment.getPropertySources().addFirst(new MapPropertySource("mappings", Collections.<String, Object>singletonMap(
+                CloudServicesSettings.MAPPINGS, mappings)));
+        return new CloudServicesConfigMap(new CloudServicesSettings(environment), new DefaultResourceLoader(classLoader));
+    }
+
+    @Test
+    public void generatedMappings() throws Exception {
+        ClassLoader classLoader = compile("/mappings.env.json", MAPPINGS);
+        CloudServicesMappings mappings = (CloudServicesMappings) classLoader.loadClass(CLASS_NAME).getDeclaredConstructor().newInstance();
+        assertEquals(2, mappings.getVersion());
+        assertEquals("/mappings.env.json", mappings.getLocation());
+        assertEquals(2, mappings.getNames().length);
+        assertEquals("file:/tmp/\"url\".txt", mappings.getSearchPatterns("cloudant.url")[1]);
+        assertNull(mappings.getSearchPatterns("cloudant.username"));
+    }
+
+    @Test
+    public void usedInPlaceOfMappingsFile() throws IOException {
+        CloudServicesConfigMap configMap = configMap(compile("mappings.env.json", MAPPINGS), "/mappings.env.json");
+        System.setProperty("compiled_password", "compiled-password");
+        System.setProperty("cloudant_password", "json-password");
+        assertEquals("compiled-password", configMap.getValue("cloudant.password"));
+        assertTrue(!configMap.isMapped("cloudant.username"));
+    }
+
+    @Test
+    public void ignoredForOtherMappingsFile() throws IOException {
+        CloudServicesConfigMap configMap = configMap(compile("/mappings.other.json", MAPPINGS), "/mappings.env.json");
+        System.setProperty("compiled_password", "compiled-password");
+        System.setProperty("cloudant_password", "json-password");
+        assertEquals("json-password", configMap.getValue("cloudant.password"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSearchPattern() throws IOException {
+        CloudServicesMappingsGenerator.generate("/mappings.json", new ByteArrayInputStream(
+                "{\"cloudant_url\":{\"searchPatterns\":[\"cloudfoundry:cloudantNoSQLDB\"]}}".getBytes(StandardCharsets.UTF_8)), CLASS_NAME);
+    }
+}
@@ -0,0 +1,92 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ *  This class tests merging the mappings files on the classpath and the additional mappings files.
+ */
+public class CloudServicesMappingsLayersTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        System.clearProperty("cloudant_url");
+        System.clearProperty("shared_cloudant_url");
+        System.clearProperty("app_cloudant_url");
+        System.clearProperty("jar_cloudant_url");
+    }
+
+    private CloudServicesConfigMap configMap(ClassLoader classLoader, String... properties) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < properties.length; i += 2) {
+            values.put(properties[i], properties[i + 1]);
+        }
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", values));
+        return new CloudServicesConfigMap(new CloudServicesSettings(environment), new DefaultResourceLoader(classLoader));
+    }
+
+    private File write(String name, String json) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void additionalMappingsOverride() throws IOException {
+        File app = write("app.json", "{\"version\":2,\"cloudant\":{\"url\":{\"searchPatterns\":[\"env:app_cloudant_url\"]}}}");
+        CloudServicesConfigMap configMap = configMap(getClass().getClassLoader(),
+                CloudServicesSettings.MAPPINGS, "/mappings.v1.json",
+                CloudServicesSettings.MAPPINGS_ADDITIONAL, "classpath:mappings.shared.json, file:" + app.getAbsolutePath());
+        System.setProperty("cloudant_url", "v1-url");
+        System.setProperty("shared_cloudant_url", "shared-url");
+        System.setProperty("app_cloudant_url", "app-url");
+        // cloudant_url from mappings.v1.json is replaced by mappings.shared.json
+        assertEquals("shared-url", configMap.getValue("cloudant_url"));
+        // v1 file patterns in the shared mappings keep their v1 meaning
+        assertEquals("https://file-url.cloudant.com", configMap.getValue("shared_name"));
+        assertEquals("app-url", configMap.getValue("cloudant.url"));
+        assertEquals("file-json-username", configMap.getValue("cloudant_username"));
+    }
+
+    @Test
+    public void everyCopyOnClasspath() throws IOException {
+        write("mappings.v2.json", "{\"version\":2,\"cloudant\":{\"url\":{\"searchPatterns\":[\"env:jar_cloudant_url\"]},"
+                + "\"apikey\":{\"searchPatterns\":[\"env:jar_cloudant_url\"]}}}");
+        ClassLoader classLoader = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, getClass().getClassLoader());
+        CloudServicesConfigMap configMap = configMap(classLoader, CloudServicesSettings.MAPPINGS, "/mappings.v2.json");
+        System.setProperty("jar_cloudant_url", "jar-url");
+        // the copy later on the classpath only adds names
+        assertEquals("jar-url", configMap.getValue("cloudant.apikey"));
+        assertEquals("https://file-url.cloudant.com", configMap.getValue("cloudant.url"));
+    }
+
+    @Test
+    public void missingAdditionalMappings() {
+        CloudServicesConfigMap configMap = configMap(getClass().getClassLoader(),
+                CloudServicesSettings.MAPPINGS, "/mappings.v2.json",
+                CloudServicesSettings.MAPPINGS_ADDITIONAL, "classpath:mappings.missing.json");
+        assertEquals("file-json-username", configMap.getValue("cloudant.username"));
+        assertNull(configMap.getValue("cloudant_username"));
+    }
+}
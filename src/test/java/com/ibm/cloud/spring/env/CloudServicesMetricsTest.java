@@ -0,0 +1,111 @@
+package com.ibm.cloud.spring.env;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class tests the resolution statistics and their publication
+ *  through Micrometer.
+ */
+public class CloudServicesMetricsTest {
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    private final ConfigurableApplicationContext appContext =
+            new AnnotationConfigApplicationContext();
+
+    private CloudServicesStats stats;
+
+    @Before
+    public void setUp() {
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.v2.json",
+                CloudServicesSettings.METRICS_ENABLED + "=true");
+        initializer.postProcessEnvironment(this.appContext.getEnvironment(), null);
+        stats = CloudServicesConfigMap.from(appContext.getEnvironment()).getStats();
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("cloudant_username");
+    }
+
+    @Test
+    public void lookupsCounted() {
+        System.setProperty("cloudant_username", "env-username");
+        appContext.getEnvironment().getProperty("cloudant.username");
+        appContext.getEnvironment().getProperty("cloudant.unknown");
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getUnmapped());
+        assertEquals(0, stats.getMisses());
+        // user-provided and cloudfoundry miss, then env:cloudant_config misses and env:cloudant_username at position 3 hits
+        assertEquals(1, stats.getProtocol("env").getHits(3));
+        assertEquals(1, stats.getProtocol("env").getMisses());
+        assertEquals(1, stats.getProtocol("user-provided").getMisses());
+        assertEquals(0, stats.getProtocol("file").getCount());
+    }
+
+    @Test
+    public void fileCacheCounted() {
+        appContext.getEnvironment().getProperty("cloudant.username");
+        appContext.getEnvironment().getProperty("cloudant.password");
+        assertEquals(2, stats.getProtocol("file").getHits(4));
+        assertEquals(1, stats.getCaches().get("file").getMisses());
+        assertEquals(1, stats.getCaches().get("file").getHits());
+        assertEquals(1, stats.getJsonParses());
+    }
+
+    @Test
+    public void publishedToMeterRegistry() {
+        System.setProperty("cloudant_username", "env-username");
+        appContext.getEnvironment().getProperty("cloudant.username");
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new CloudServicesMeterBinder(CloudServicesConfigMap.from(appContext.getEnvironment())).bindTo(registry);
+        assertEquals(1.0, registry.get("cloud.services.lookups").tag("result", "hit").functionCounter().count(), 0);
+        assertEquals(1.0, registry.get("cloud.services.resolution.hits").tag("protocol", "env").tag("position", "3")
+                .functionCounter().count(), 0);
+        assertEquals(2.0, registry.get("cloud.services.resolution").tag("protocol", "env").functionTimer().count(), 0);
+        assertNotNull(registry.get("cloud.services.resolution").tag("protocol", "env").functionTimer().totalTime(TimeUnit.NANOSECONDS));
+        assertEquals(2.0, registry.get("cloud.services.resolution.latency").tag("protocol", "env").tag("le", "+Inf")
+                .functionCounter().count(), 0);
+        assertEquals(CloudServicesStats.LATENCY_BUCKETS,
+                registry.find("cloud.services.resolution.latency").tag("protocol", "env").functionCounters().size());
+    }
+
+    @Test
+    public void disabled() {
+        ConfigurableApplicationContext context = new AnnotationConfigApplicationContext();
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(context,
+                CloudServicesSettings.MAPPINGS + "=/mappings.v2.json");
+        initializer.postProcessEnvironment(context.getEnvironment(), null);
+        assertNull(CloudServicesConfigMap.from(context.getEnvironment()).getStats());
+        ((AnnotationConfigApplicationContext) context).register(CloudServicesMetricsAutoConfiguration.class);
+        context.refresh();
+        assertTrue(context.getBeansOfType(CloudServicesMeterBinder.class).isEmpty());
+        context.close();
+    }
+
+    @Test
+    public void autoConfiguredFromConfigMapSettings() {
+        // the settings the config map was created with are no longer in the environment
+        appContext.getEnvironment().getPropertySources().remove(TestPropertySourceUtils.INLINED_PROPERTIES_PROPERTY_SOURCE_NAME);
+        ((AnnotationConfigApplicationContext) appContext).register(CloudServicesMetricsAutoConfiguration.class);
+        appContext.refresh();
+        assertNotNull(appContext.getBean(CloudServicesMeterBinder.class));
+        appContext.close();
+    }
+}
@@ -0,0 +1,136 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class tests saving the resolved values to a snapshot file and restoring
+ *  them on the next start.
+ */
+public class CloudServicesSnapshotTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    // 32 random bytes, base64 encoded
+    private static final String KEY = "AQIDBAUGBwgJCgsMDQ4PEBESExQVFhcYGRobHB0eHyA=";
+    private static final String OTHER_KEY = "ZWZnaGlqa2xtbm9wcXJzdHV2d3h5ent8fX5/gIGCg4Q=";
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    @After
+    public void tearDown() {
+        System.clearProperty("cloudant_password");
+    }
+
+    private File snapshotFile() {
+        return new File(folder.getRoot(), "snapshot/cloud-services.bin");
+    }
+
+    private Environment start(String key) {
+        ConfigurableApplicationContext appContext = new AnnotationConfigApplicationContext();
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.env.json",
+                CloudServicesSettings.METRICS_ENABLED + "=true",
+                CloudServicesSettings.SNAPSHOT_FILE + "=" + snapshotFile().getAbsolutePath(),
+                CloudServicesSettings.SNAPSHOT_KEY + "=" + key);
+        initializer.postProcessEnvironment(appContext.getEnvironment(), null);
+        return appContext.getEnvironment();
+    }
+
+    private long resolved(Environment environment) {
+        CloudServicesStats stats = CloudServicesConfigMap.from(environment).getStats();
+        return stats.getHits() + stats.getMisses();
+    }
+
+    @Test
+    public void restoredWhenUnchanged() throws IOException {
+        System.setProperty("cloudant_password", "env-password");
+        Environment first = start(KEY);
+        assertEquals("env-password", first.getProperty("cloudant.password"));
+        assertEquals(3, resolved(first));
+        assertTrue(snapshotFile().isFile());
+        assertFalse(new String(Files.readAllBytes(snapshotFile().toPath()), StandardCharsets.ISO_8859_1).contains("env-password"));
+
+        Environment second = start(KEY);
+        assertEquals("env-password", second.getProperty("cloudant.password"));
+        assertEquals(0, resolved(second));
+    }
+
+    @Test
+    public void resolvedWhenSourceChanged() {
+        System.setProperty("cloudant_password", "env-password");
+        start(KEY);
+        System.setProperty("cloudant_password", "rotated-password");
+        Environment second = start(KEY);
+        assertEquals("rotated-password", second.getProperty("cloudant.password"));
+        assertEquals(3, resolved(second));
+        assertEquals(0, resolved(start(KEY)));
+    }
+
+    @Test
+    public void resolvedWithDifferentKey() {
+        System.setProperty("cloudant_password", "env-password");
+        start(KEY);
+        Environment second = start(OTHER_KEY);
+        assertEquals("env-password", second.getProperty("cloudant.password"));
+        assertEquals(3, resolved(second));
+    }
+
+    @Test
+    public void resolvedWhenCorrupt() throws IOException {
+        System.setProperty("cloudant_password", "env-password");
+        start(KEY);
+        byte[] contents = Files.readAllBytes(snapshotFile().toPath());
+        contents[contents.length - 1] ^= 1;
+        Files.write(snapshotFile().toPath(), contents);
+        Environment second = start(KEY);
+        assertEquals("env-password", second.getProperty("cloudant.password"));
+        assertEquals(3, resolved(second));
+    }
+
+    @Test
+    public void newSnapshotHasNewSalt() throws IOException {
+        System.setProperty("cloudant_password", "env-password");
+        start(KEY);
+        byte[] first = Files.readAllBytes(snapshotFile().toPath());
+        Files.delete(snapshotFile().toPath());
+        start(KEY);
+        byte[] second = Files.readAllBytes(snapshotFile().toPath());
+        // the salt follows the 4 byte magic number and the version
+        assertFalse(Arrays.equals(Arrays.copyOfRange(first, 5, 21), Arrays.copyOfRange(second, 5, 21)));
+        assertEquals(0, resolved(start(KEY)));
+    }
+
+    @Test(expected = CloudServicesException.class)
+    public void keyRequired() {
+        start("");
+    }
+
+    @Test(expected = CloudServicesException.class)
+    public void shortKeyRejected() {
+        start("c2VjcmV0");      //"secret"
+    }
+
+    @Test(expected = CloudServicesException.class)
+    public void passwordKeyRejected() {
+        start("not base64 but long enough to be 32 bytes");
+    }
+}
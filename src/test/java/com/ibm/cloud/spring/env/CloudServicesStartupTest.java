@@ -0,0 +1,126 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class tests that Jackson and JsonPath are not loaded when the mappings are
+ *  compiled at build time and no search pattern reads JSON.
+ */
+public class CloudServicesStartupTest {
+
+    /**
+     * Mappings as generated at build time, with a plain text file: pattern and a JSON env: pattern.
+     */
+    public static final class PlainMappings implements CloudServicesMappings {
+
+        @Override
+        public String getLocation() {
+            return "/mappings.plain.json";
+        }
+
+        @Override
+        public int getVersion() {
+            return 2;
+        }
+
+        @Override
+        public String[] getNames() {
+            return new String[] {"plain.url", "plain.config"};
+        }
+
+        @Override
+        public String[] getSearchPatterns(String name) {
+            switch (name) {
+                case "plain.url":
+                    return new String[] {"env:plain_url", "file:cloudant.url.txt"};
+                case "plain.config":
+                    return new String[] {"env:plain_config:$.url"};
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Loads classes itself rather than from its parent, so they are loaded again.
+     */
+    private static final class IsolatedClassLoader extends URLClassLoader {
+
+        IsolatedClassLoader(URL[] classpath) {
+            super(classpath, ClassLoader.getSystemClassLoader().getParent());
+        }
+
+        boolean isLoaded(String name) {
+            return findLoadedClass(name) != null;
+        }
+    }
+
+    /**
+     * Post process a new environment, called in the isolated class loader.
+     *
+     * @return The environment
+     */
+    public static ConfigurableEnvironment postProcess() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(CloudServicesSettings.MAPPINGS, "/mappings.plain.json");
+        settings.put(CloudServicesSettings.MAPPINGS_CLASS, PlainMappings.class.getName());
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new MapPropertySource("test", settings));
+        new CloudServicesEnvironmentPostProcessor().postProcessEnvironment(environment, null);
+        return environment;
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("plain_config");
+    }
+
+    private static URL[] getClasspath() throws Exception {
+        String classpath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        List<URL> urls = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            urls.add(new File(entry).toURI().toURL());
+        }
+        return urls.toArray(new URL[urls.size()]);
+    }
+
+    @Test
+    public void jsonLoadedOnFirstJsonLookup() throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (IsolatedClassLoader loader = new IsolatedClassLoader(getClasspath())) {
+            thread.setContextClassLoader(loader);       //used by Spring to find the compiled mappings
+            Object environment = loader.loadClass(CloudServicesStartupTest.class.getName()).getMethod("postProcess").invoke(null);
+            Method getProperty = environment.getClass().getMethod("getProperty", String.class);
+
+            assertEquals("https://file-url.cloudant.com", getProperty.invoke(environment, "plain.url"));
+            assertFalse(loader.isLoaded("com.fasterxml.jackson.databind.JsonNode"));
+            assertFalse(loader.isLoaded("com.fasterxml.jackson.databind.ObjectMapper"));
+            assertFalse(loader.isLoaded("com.jayway.jsonpath.JsonPath"));
+
+            System.setProperty("plain_config", "{\"url\":\"https://env-json.cloudant.com\"}");
+            assertEquals("https://env-json.cloudant.com", getProperty.invoke(environment, "plain.config"));
+            assertTrue(loader.isLoaded("com.fasterxml.jackson.databind.ObjectMapper"));
+            assertFalse(loader.isLoaded("com.jayway.jsonpath.JsonPath"));     //a simple path is evaluated without JsonPath
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+}
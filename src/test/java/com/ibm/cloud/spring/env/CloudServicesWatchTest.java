@@ -0,0 +1,118 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ *  This class tests that the config map sees changes to the files referenced by the mappings.
+ */
+public class CloudServicesWatchTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final BlockingQueue<CloudServicesChangedEvent> events = new LinkedBlockingQueue<>();
+    private final GenericApplicationContext appContext = new GenericApplicationContext();
+    private CloudServicesConfigMap configMap;
+
+    @After
+    public void tearDown() {
+        System.clearProperty("cloudant_url");
+        if (configMap != null) {
+            configMap.stopWatching();
+        }
+        appContext.close();
+    }
+
+    private CloudServicesConfigMap configMap(String... properties) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < properties.length; i += 2) {
+            values.put(properties[i], properties[i + 1]);
+        }
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", values));
+        configMap = new CloudServicesConfigMap(new CloudServicesSettings(environment), new DefaultResourceLoader());
+        return configMap;
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private File mappings(String json) throws IOException {
+        return write("mappings.json", "{\"version\":2," + json + "}");
+    }
+
+    @Test
+    public void textFileReadOnEveryLookupWhenNotWatching() throws IOException {
+        File password = write("password.txt", "first-password");
+        File mappings = mappings("\"cloudant\":{\"password\":{\"searchPatterns\":[\"file:" + password.getAbsolutePath() + "\"]}}");
+        configMap(CloudServicesSettings.MAPPINGS, "/mappings.env.json",
+                CloudServicesSettings.MAPPINGS_ADDITIONAL, "file:" + mappings.getAbsolutePath());
+        assertEquals("first-password", configMap.getValue("cloudant.password"));
+        write("password.txt", "rotated-password");
+        assertEquals("rotated-password", configMap.getValue("cloudant.password"));
+    }
+
+    @Test
+    public void changeInvalidatesNamesMappedToFile() throws Exception {
+        File password = write("password.txt", "first-password");
+        File username = write("username.txt", "first-username");
+        File mappings = mappings("\"cloudant\":{\"password\":{\"searchPatterns\":[\"file:" + password.getAbsolutePath() + "\"]},"
+                + "\"username\":{\"searchPatterns\":[\"file:" + username.getAbsolutePath() + "\"]}}");
+        configMap(CloudServicesSettings.MAPPINGS, "/mappings.env.json",
+                CloudServicesSettings.MAPPINGS_ADDITIONAL, "file:" + mappings.getAbsolutePath(),
+                CloudServicesSettings.CACHE_ENABLED, "true");
+        appContext.addApplicationListener(new ApplicationListener<ApplicationEvent>() {
+            @Override
+            public void onApplicationEvent(ApplicationEvent event) {
+                if (event instanceof CloudServicesChangedEvent) {
+                    events.add((CloudServicesChangedEvent) event);
+                }
+            }
+        });
+        appContext.refresh();
+        configMap.setAppContext(appContext);
+        configMap.startWatching();
+        System.setProperty("cloudant_url", "first-url");
+        assertEquals("first-password", configMap.getValue("cloudant.password"));
+        assertEquals("first-username", configMap.getValue("cloudant.username"));
+        assertEquals("first-url", configMap.getValue("cloudant.url"));
+
+        System.setProperty("cloudant_url", "second-url");
+        write("password.txt", "rotated-password");     //a different size, so the change is seen within the same millisecond
+        CloudServicesChangedEvent event = events.poll(30, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertSame(configMap, event.getSource());
+        assertEquals(Collections.singleton("cloudant.password"), event.getNames());
+        assertEquals("rotated-password", configMap.getValue("cloudant.password"));
+        // the names not mapped to the changed file keep their cached values
+        assertEquals("first-username", configMap.getValue("cloudant.username"));
+        assertEquals("first-url", configMap.getValue("cloudant.url"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.ibm.cloud.spring.env;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class tests the json path evaluator against Jayway JsonPath.
+ */
+public class JsonQueryTest {
+
+    private static final String DOCUMENT = "{\"cloudantNoSQLDB\":[{\"credentials\":{\"url\":\"https://cloudant.com\",\"port\":999,"
+            + "\"tls\":true,\"ca\":null,\"hosts\":[\"a\",\"b\"],\"db-name\":\"orders\"}}],\"cloudant_username\":\"user\"}";
+
+    private static final String[] SIMPLE_PATHS = {
+            "$['cloudantNoSQLDB'][0].credentials.url",
+            "$.cloudantNoSQLDB[0]['credentials']['port']",
+            "$[\"cloudantNoSQLDB\"][0].credentials.tls",
+            "$.cloudantNoSQLDB[0].credentials.ca",
+            "$.cloudantNoSQLDB[0].credentials.hosts",
+            "$.cloudantNoSQLDB[0].credentials.hosts[1]",
+            "$.cloudantNoSQLDB[0].credentials.hosts[2]",
+            "$.cloudantNoSQLDB[0].credentials['db-name']",
+            "$.cloudantNoSQLDB[0].credentials",
+            "$.cloudantNoSQLDB[1].credentials.url",
+            "$.cloudantNoSQLDB.credentials",
+            "$[0]",
+            "$.cloudant_username",
+            "$.missing.url",
+            "cloudant_username",
+    };
+
+    private static final String[] JAYWAY_PATHS = {
+            "$..url",
+            "$.cloudantNoSQLDB[*].credentials.url",
+            "$.cloudantNoSQLDB[0:1].credentials.url",
+            "$.cloudantNoSQLDB[?(@.credentials.port == 999)].credentials.url",
+            "$['cloudantNoSQLDB','cloudant_username']",
+    };
+
+    private final JsonNode document;
+
+    public JsonQueryTest() throws IOException {
+        document = CloudServicesJson.parse(DOCUMENT);
+    }
+
+    @Test
+    public void simplePathsMatchJayway() {
+        for (String path : SIMPLE_PATHS) {
+            JsonQuery query = JsonQuery.compile(path);
+            assertTrue(path, query.isSimple());
+            assertEquals(path, CloudServicesJson.read(document, JsonPath.compile(path)), query.read(document));
+        }
+    }
+
+    @Test
+    public void simplePathsNormalized() {
+        assertEquals("$['cloudantNoSQLDB'][0]['credentials']['url']", JsonQuery.compile("$.cloudantNoSQLDB[0].credentials.url").getPath());
+        assertEquals("$['cloudantNoSQLDB'][0]['credentials']['url']", JsonQuery.compile("$[\"cloudantNoSQLDB\"][0]['credentials'].url").getPath());
+        assertEquals("$['cloudant_username']", JsonQuery.compile("cloudant_username").getPath());
+        for (String path : SIMPLE_PATHS) {
+            if (!path.contains("\"")) {
+                assertEquals(path, JsonPath.compile(path).getPath(), JsonQuery.compile(path).getPath());
+            }
+        }
+    }
+
+    @Test
+    public void otherPathsUseJayway() {
+        for (String path : JAYWAY_PATHS) {
+            JsonQuery query = JsonQuery.compile(path);
+            assertFalse(path, query.isSimple());
+            assertEquals(path, CloudServicesJson.read(document, JsonPath.compile(path)), query.read(document));
+        }
+    }
+
+    @Test
+    public void readMissingDocument() {
+        assertNull(JsonQuery.compile("$.cloudant_username").read(MissingNode.getInstance()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPath() {
+        JsonQuery.compile("$.cloudantNoSQLDB.");
+    }
+}
@@ -0,0 +1,45 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class directly tests the trie of mapped property names.
+ */
+public class PropertyNameTrieTest {
+
+    private final PropertyNameTrie trie = new PropertyNameTrie(Arrays.asList(
+            "cloudant.username", "cloudant.url", "cloudantdb.url", "cloudant_url", "redis.cache.uri"));
+
+    @Test
+    public void names() {
+        assertArrayEquals(new String[]{"cloudant.url", "cloudant.username", "cloudant_url", "cloudantdb.url", "redis.cache.uri"},
+                trie.getNames());
+    }
+
+    @Test
+    public void containsPrefix() {
+        assertTrue(trie.containsPrefix("cloudant"));
+        assertTrue(trie.containsPrefix("cloudant.url"));
+        assertTrue(trie.containsPrefix("redis.cache"));
+        assertTrue(trie.containsPrefix("cloudant_url"));
+        assertFalse(trie.containsPrefix("cloud"));
+        assertFalse(trie.containsPrefix("cloudant.url.scheme"));
+        assertFalse(trie.containsPrefix("redis.cach"));
+    }
+
+    @Test
+    public void namesUnderPrefix() {
+        assertEquals(Arrays.asList("cloudant.url", "cloudant.username"), trie.getNames("cloudant"));
+        assertEquals(Collections.singletonList("redis.cache.uri"), trie.getNames("redis"));
+        assertEquals(Collections.singletonList("cloudant.url"), trie.getNames("cloudant.url"));
+        assertEquals(Collections.emptyList(), trie.getNames("cloud"));
+    }
+}
@@ -0,0 +1,253 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ *  This class tests the cache of files and classpath resources.
+ */
+public class ResourceCacheTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ResourceCache<String> cache(final Function<String, String> loader, int maximumSize, long negativeTtlNanos,
+                                        long refreshNanos, Executor refreshExecutor) {
+        return new ResourceCache<>("file", new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                loads.incrementAndGet();
+                return loader.apply(location);
+            }
+        }, maximumSize, negativeTtlNanos, refreshNanos, refreshExecutor, null);
+    }
+
+    @Test
+    public void concurrentLoadsShared() throws Exception {
+        final CountDownLatch released = new CountDownLatch(1);
+        final ResourceCache<String> cache = cache(new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                try {
+                    released.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return location + "-value";
+            }
+        }, 10, HOUR, 0, null);
+        List<Future<String>> lookups = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            lookups.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return cache.get("shared");
+                }
+            }));
+        }
+        released.countDown();
+        for (Future<String> lookup : lookups) {
+            assertEquals("shared-value", lookup.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void slowLoadDoesNotBlockOtherResources() throws Exception {
+        final CountDownLatch released = new CountDownLatch(1);
+        final ResourceCache<String> cache = cache(new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                if (location.equals("slow")) {
+                    try {
+                        released.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return location + "-value";
+            }
+        }, 10, HOUR, 0, null);
+        Future<String> slow = executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return cache.get("slow");
+            }
+        });
+        while (cache.size() == 0) {
+            Thread.yield();     //wait for the slow load to start
+        }
+        assertEquals("fast-value", cache.get("fast"));
+        assertFalse(slow.isDone());
+        released.countDown();
+        assertEquals("slow-value", slow.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void errorNotCached() throws Exception {
+        final ResourceCache<String> cache = cache(new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                if (loads.get() == 1) {
+                    throw new NoClassDefFoundError("resolver dependency");
+                }
+                return location + "-value";
+            }
+        }, 10, HOUR, 0, null);
+        try {
+            cache.get("broken");
+            fail("the loader's error was not thrown");
+        } catch (NoClassDefFoundError expected) {
+        }
+        Future<String> retry = executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return cache.get("broken");
+            }
+        });
+        assertEquals("broken-value", retry.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void missingResourceExpires() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("secret");
+        Function<String, String> loader = new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                try {
+                    return new String(Files.readAllBytes(Paths.get(location)), StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    return null;
+                }
+            }
+        };
+        ResourceCache<String> cache = cache(loader, 10, 0, 0, null);
+        assertNull(cache.get(file.toString()));
+        Files.write(file, "written-by-sidecar".getBytes(StandardCharsets.UTF_8));      //appears after startup
+        assertEquals("written-by-sidecar", cache.get(file.toString()));
+        assertEquals("written-by-sidecar", cache.get(file.toString()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void missingResourceCachedUntilExpiry() {
+        ResourceCache<String> cache = cache(new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                return null;
+            }
+        }, 10, HOUR, 0, null);
+        assertNull(cache.get("missing"));
+        assertNull(cache.get("missing"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void failureNotCached() {
+        ResourceCache<String> cache = cache(new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                if (loads.get() == 1) {
+                    throw new CloudServicesException("Unexpected exception reading resource " + location);
+                }
+                return location + "-value";
+            }
+        }, 10, HOUR, 0, null);
+        try {
+            cache.get("flaky");
+            fail("Expected the load to fail");
+        } catch (CloudServicesException e) {
+            // expected
+        }
+        assertEquals("flaky-value", cache.get("flaky"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+        ResourceCache<String> cache = cache(new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                return location + "-value";
+            }
+        }, 2, HOUR, 0, null);
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+        assertEquals(2, cache.size());
+        assertEquals(3, loads.get());
+        cache.get("a");
+        assertEquals(3, loads.get());
+        cache.get("b");
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void refreshedInBackground() {
+        Executor direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        ResourceCache<String> cache = cache(new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                return location + "-" + loads.get();
+            }
+        }, 10, HOUR, 1, direct);
+        assertEquals("rotating-1", cache.get("rotating"));
+        assertEquals("rotating-1", cache.get("rotating"));      //the old value is used while refreshing
+        assertEquals("rotating-2", cache.get("rotating"));
+    }
+
+    @Test
+    public void invalidatedResourceReloaded() {
+        ResourceCache<String> cache = cache(new Function<String, String>() {
+            @Override
+            public String apply(String location) {
+                return location + "-" + loads.get();
+            }
+        }, 10, HOUR, 0, null);
+        assertEquals("file-1", cache.get("file"));
+        cache.invalidate("file");
+        assertEquals("file-2", cache.get("file"));
+        cache.invalidateAll();
+        assertEquals("file-3", cache.get("file"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ *  This class directly tests compilation of mappings.json search patterns.
+ */
+public class SearchPatternTest {
+
+    @Test
+    public void compileValidPatterns() {
+        assertEquals("user-provided:cloudant-instance-id:url",
+                SearchPattern.compile("user-provided:cloudant-instance-id:url", 2).toString());
+        assertEquals("cloudfoundry:$['cloudantNoSQLDB'][0].credentials.url",
+                SearchPattern.compile("cloudfoundry:$['cloudantNoSQLDB'][0].credentials.url", 2).toString());
+        assertEquals("env:cloudant_config:$.cloudant_username",
+                SearchPattern.compile("env:cloudant_config:$.cloudant_username", 2).toString());
+        assertEquals("file:cloudant.url.txt", SearchPattern.compile("file:cloudant.url.txt", 2).toString());
+        assertEquals("binding:cloudant:url", SearchPattern.compile("binding:cloudant:url", 2).toString());
+        assertEquals("binding:type=cloudant:url", SearchPattern.compile("binding:type=cloudant:url", 2).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownProtocol() {
+        SearchPattern.compile("vault:secret/cloudant", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cloudFoundryWithoutJsonPath() {
+        SearchPattern.compile("cloudfoundry:cloudantNoSQLDB", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void envWithoutJsonPath() {
+        SearchPattern.compile("env:cloudant_config:cloudant_username", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fileWithoutJsonPath() {
+        SearchPattern.compile("file:localdev-config.json:cloudant_username", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void userProvidedWithoutCredentialKey() {
+        SearchPattern.compile("user-provided:cloudant-instance-id", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingTarget() {
+        SearchPattern.compile("env:", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bindingWithoutKey() {
+        SearchPattern.compile("binding:cloudant", 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bindingWithoutType() {
+        SearchPattern.compile("binding:type=:url", 2);
+    }
+}
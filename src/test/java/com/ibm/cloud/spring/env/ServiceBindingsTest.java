@@ -0,0 +1,112 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ *  This class tests the binding: search patterns against a servicebinding.io
+ *  style directory under SERVICE_BINDING_ROOT.
+ */
+public class ServiceBindingsTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    private final ConfigurableApplicationContext appContext =
+            new AnnotationConfigApplicationContext();
+
+    @Before
+    public void setUp() throws IOException {
+        System.setProperty("SERVICE_BINDING_ROOT", folder.getRoot().getAbsolutePath());
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.binding.json");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("SERVICE_BINDING_ROOT");
+    }
+
+    private void write(String binding, String key, String value) throws IOException {
+        File dir = new File(folder.getRoot(), binding);
+        dir.mkdirs();
+        Files.write(new File(dir, key).toPath(), value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void getValueByNameAndType() throws IOException {
+        write("cloudant-db", "type", "cloudant\n");
+        write("cloudant-db", "url", "https://cloudant.example.com\n");
+        write("cloudant-db", "username", "db-user");
+        write("cloudant-db", "password", "db-password");
+        write("other", "type", "postgresql");
+        write("other", "username", "pg-user");
+        initializer.postProcessEnvironment(appContext.getEnvironment(), null);
+        Environment environment = appContext.getEnvironment();
+        assertEquals("https://cloudant.example.com", environment.getProperty("cloudant.url"));
+        assertEquals("db-user", environment.getProperty("cloudant.username"));
+        assertEquals("db-password", environment.getProperty("cloudant.password"));
+    }
+
+    @Test
+    public void getLargeValue() throws IOException {
+        char[] certificate = new char[64 * 1024];
+        Arrays.fill(certificate, 'c');
+        write("cloudant-db", "url", new String(certificate));
+        initializer.postProcessEnvironment(appContext.getEnvironment(), null);
+        assertEquals(new String(certificate), appContext.getEnvironment().getProperty("cloudant.url"));
+    }
+
+    @Test
+    public void rescannedAfterRefresh() throws IOException {
+        initializer.postProcessEnvironment(appContext.getEnvironment(), null);
+        Environment environment = appContext.getEnvironment();
+        assertNull(environment.getProperty("cloudant.url"));
+        write("cloudant-db", "url", "https://cloudant.example.com");
+        assertNull(environment.getProperty("cloudant.url"));
+        CloudServicesConfigMap.from(environment).refresh();
+        assertEquals("https://cloudant.example.com", environment.getProperty("cloudant.url"));
+    }
+
+    @Test
+    public void unreadableKeySkipped() throws IOException {
+        write("cloudant-db", "type", "cloudant");
+        write("cloudant-db", "url", "https://cloudant.example.com");
+        write("cloudant-db", "username", "db-user");
+        write("cloudant-db", "password", "db-password");
+        File password = new File(folder.getRoot(), "cloudant-db/password");
+        Assume.assumeTrue(password.setReadable(false, false) && !password.canRead());     //root can read every file
+        initializer.postProcessEnvironment(appContext.getEnvironment(), null);
+        Environment environment = appContext.getEnvironment();
+        assertEquals("https://cloudant.example.com", environment.getProperty("cloudant.url"));
+        assertEquals("db-user", environment.getProperty("cloudant.username"));
+        assertNull(environment.getProperty("cloudant.password"));
+    }
+
+    @Test
+    public void missingRoot() {
+        System.setProperty("SERVICE_BINDING_ROOT", new File(folder.getRoot(), "missing").getAbsolutePath());
+        initializer.postProcessEnvironment(appContext.getEnvironment(), null);
+        assertNull(appContext.getEnvironment().getProperty("cloudant.url"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.support.TestPropertySourceUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ *  This class tests search patterns handled by resolvers registered in spring.factories.
+ */
+public class ServiceValueResolverTest {
+
+    /**
+     * Stands in for a remote secrets agent, which only answers once released.
+     */
+    public static class AgentResolver implements ServiceValueResolver {
+
+        static volatile CountDownLatch released = new CountDownLatch(0);
+        static final AtomicInteger calls = new AtomicInteger();
+        static final AtomicInteger answered = new AtomicInteger();
+
+        @Override
+        public String getProtocol() {
+            return "agent";
+        }
+
+        @Override
+        public Cost getCost() {
+            return Cost.REMOTE;
+        }
+
+        @Override
+        public boolean isAsync() {
+            return true;
+        }
+
+        @Override
+        public String resolve(String target) {
+            calls.incrementAndGet();
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                answered.incrementAndGet();
+            }
+            if (target.equals("fail")) {
+                throw new IllegalStateException("agent unavailable");
+            }
+            return "agent-" + target;
+        }
+    }
+
+    public static class MemoryResolver implements ServiceValueResolver {
+
+        @Override
+        public String getProtocol() {
+            return "memory";
+        }
+
+        @Override
+        public Cost getCost() {
+            return Cost.MEMORY;
+        }
+
+        @Override
+        public String resolve(String target) {
+            if (target.equals("fail")) {
+                throw new IllegalStateException("no such entry");
+            }
+            return "memory-" + target;
+        }
+    }
+
+    private final CloudServicesEnvironmentPostProcessor initializer =
+            new CloudServicesEnvironmentPostProcessor();
+
+    private final ConfigurableApplicationContext appContext =
+            new AnnotationConfigApplicationContext();
+
+    private Environment environment;
+
+    @Before
+    public void setUp() {
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(appContext,
+                CloudServicesSettings.MAPPINGS + "=/mappings.resolver.json");
+        initializer.postProcessEnvironment(this.appContext.getEnvironment(), null);
+        environment = appContext.getEnvironment();
+        AgentResolver.released = new CountDownLatch(0);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("resolver_url");
+        System.clearProperty("resolver_username");
+        System.clearProperty("resolver_apikey");
+        System.clearProperty("resolver_host");
+    }
+
+    @Test
+    public void resolvedWhenEarlierPatternsMiss() {
+        assertEquals("agent-cloudant/url", environment.getProperty("cloudant.url"));
+        assertEquals("memory-cloudant/password", environment.getProperty("cloudant.password"));
+    }
+
+    @Test
+    public void firstMatchWins() {
+        System.setProperty("resolver_username", "env-username");
+        assertEquals("agent-cloudant/username", environment.getProperty("cloudant.username"));
+    }
+
+    @Test
+    public void notWaitedForAfterEarlierMatch() {
+        // the file: pattern reads a file, so the agent lookup is started before the env: pattern is tried
+        System.setProperty("resolver_host", "env-host");
+        AgentResolver.released = new CountDownLatch(1);
+        try {
+            int answered = AgentResolver.answered.get();
+            assertEquals("env-host", environment.getProperty("cloudant.host"));
+            // the agent cannot answer until released, so the env value was returned without waiting for it
+            assertEquals(answered, AgentResolver.answered.get());
+        } finally {
+            AgentResolver.released.countDown();
+        }
+    }
+
+    @Test
+    public void notStartedAfterEarlierInMemoryMatch() {
+        System.setProperty("resolver_url", "env-url");
+        int calls = AgentResolver.calls.get();
+        assertEquals("env-url", environment.getProperty("cloudant.url"));
+        assertEquals("env-url", environment.getProperty("cloudant.url"));
+        assertEquals(calls, AgentResolver.calls.get());
+    }
+
+    @Test
+    public void timedOutLookupFallsThrough() {
+        ConfigurableApplicationContext context = new AnnotationConfigApplicationContext();
+        TestPropertySourceUtils.addInlinedPropertiesToEnvironment(context,
+                CloudServicesSettings.MAPPINGS + "=/mappings.resolver.json",
+                CloudServicesSettings.RESOLVER_TIMEOUT + "=50");
+        initializer.postProcessEnvironment(context.getEnvironment(), null);
+        System.setProperty("resolver_username", "env-username");
+        AgentResolver.released = new CountDownLatch(1);
+        try {
+            // the agent does not answer until released, so its pattern is counted as not found
+            assertEquals("env-username", context.getEnvironment().getProperty("cloudant.username"));
+        } finally {
+            AgentResolver.released.countDown();
+        }
+    }
+
+    @Test
+    public void failedLookupFallsThrough() {
+        System.setProperty("resolver_apikey", "env-apikey");
+        assertEquals("env-apikey", environment.getProperty("cloudant.apikey"));
+    }
+}
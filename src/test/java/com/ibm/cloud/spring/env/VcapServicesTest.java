@@ -0,0 +1,77 @@
+package com.ibm.cloud.spring.env;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  This class directly tests the parsed VCAP_SERVICES snapshot.
+ */
+public class VcapServicesTest {
+
+    String VCAP_SERVICES = "{\"cloudantNoSQLDB\":[{\"credentials\":{\"username\":\"VCAP_SERVICES-username\",\"port\":999}}],\"user-provided\":[{\"credentials\":{\"url\":\"https://first-url\"},\"name\":\"cloudant-instance-id\"},{\"credentials\":{\"url\":\"https://second-url\"},\"name\":\"cloudant-instance-id\"}]}";
+
+    @Test
+    public void readCloudFoundry() {
+        VcapServices vcapServices = VcapServices.parse(VCAP_SERVICES);
+        assertEquals("VCAP_SERVICES-username", vcapServices.read(JsonQuery.compile("$['cloudantNoSQLDB'][0].credentials.username")));
+        assertEquals("999", vcapServices.read(JsonQuery.compile("$['cloudantNoSQLDB'][0].credentials.port")));
+        assertNull(vcapServices.read(JsonQuery.compile("$['cloudantNoSQLDB'][0].credentials.password")));
+    }
+
+    @Test
+    public void readUserProvided() {
+        VcapServices vcapServices = VcapServices.parse(VCAP_SERVICES);
+        assertEquals("https://first-url", vcapServices.readUserProvided("cloudant-instance-id", JsonQuery.compile("url")));
+        assertNull(vcapServices.readUserProvided("cloudant-instance-id", JsonQuery.compile("username")));
+        assertNull(vcapServices.readUserProvided("unknown-instance-id", JsonQuery.compile("url")));
+    }
+
+    @Test
+    public void invalidJson() {
+        VcapServices vcapServices = VcapServices.parse("{not json");
+        assertNull(vcapServices.read(JsonQuery.compile("$['cloudantNoSQLDB'][0].credentials.username")));
+        assertNull(vcapServices.readUserProvided("cloudant-instance-id", JsonQuery.compile("url")));
+    }
+
+    @Test
+    public void isSnapshotOf() {
+        VcapServices vcapServices = VcapServices.parse(VCAP_SERVICES);
+        assertTrue(vcapServices.isSnapshotOf(VCAP_SERVICES));
+        assertTrue(vcapServices.isSnapshotOf(new String(VCAP_SERVICES)));
+        assertFalse(vcapServices.isSnapshotOf("{}"));
+    }
+
+    @Test
+    public void parseSelected() {
+        String vcap = "{\"other\":[{\"credentials\":{\"username\":\"other-username\"}}]," + VCAP_SERVICES.substring(1);
+        VcapServices.Selection selection = new VcapServices.Selection();
+        selection.selectPath(JsonQuery.compile("$.cloudantNoSQLDB[0].credentials.username"));
+        selection.selectUserProvided("cloudant-instance-id");
+        VcapServices vcapServices = VcapServices.parse(vcap, selection);
+        assertEquals("VCAP_SERVICES-username", vcapServices.read(JsonQuery.compile("$['cloudantNoSQLDB'][0].credentials.username")));
+        assertEquals("https://first-url", vcapServices.readUserProvided("cloudant-instance-id", JsonQuery.compile("url")));
+        assertNull(vcapServices.read(JsonQuery.compile("$['other'][0].credentials.username")));
+    }
+
+    @Test
+    public void parseSelectedSkipsUnreferencedUserProvided() {
+        VcapServices.Selection selection = new VcapServices.Selection();
+        selection.selectUserProvided("other-instance-id");
+        VcapServices vcapServices = VcapServices.parse(VCAP_SERVICES, selection);
+        assertNull(vcapServices.readUserProvided("cloudant-instance-id", JsonQuery.compile("url")));
+        assertNull(vcapServices.read(JsonQuery.compile("$['cloudantNoSQLDB'][0].credentials.username")));
+    }
+
+    @Test
+    public void parseSelectedWildcard() {
+        VcapServices.Selection selection = new VcapServices.Selection();
+        selection.selectPath(JsonQuery.compile("$..username"));
+        VcapServices vcapServices = VcapServices.parse(VCAP_SERVICES, selection);
+        assertEquals("VCAP_SERVICES-username", vcapServices.read(JsonQuery.compile("$['cloudantNoSQLDB'][0].credentials.username")));
+        assertEquals("https://first-url", vcapServices.readUserProvided("cloudant-instance-id", JsonQuery.compile("url")));
+    }
+}